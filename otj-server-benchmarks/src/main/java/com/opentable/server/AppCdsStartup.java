@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds an AppCDS archive for an otj-server application and measures what it saves at startup.
+ *
+ * <ol>
+ * <li>Starts the application in {@code ot.server.cds.mode=train} with {@code -XX:ArchiveClassesAtExit}: it becomes
+ * ready, requests the training paths, and exits, dumping the archive.</li>
+ * <li>Starts it {@code --runs} times each without and with {@code -XX:SharedArchiveFile}, in
+ * {@code ot.server.cds.mode=measure}, and reports the median time from JVM start to ready.</li>
+ * </ol>
+ *
+ * <pre>
+ * java -cp otj-server-benchmarks/target/benchmarks.jar com.opentable.server.AppCdsStartup \
+ *     [--runs 5] [--archive target/app.jsa] [--paths /hello,/] [main class, default the benchmark server]
+ * </pre>
+ *
+ * The application runs with this process's classpath. An archive is only valid for the exact classpath and JVM it
+ * was built with.
+ */
+public final class AppCdsStartup {
+
+    private AppCdsStartup() {
+        /* main class */
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = 5;
+        Path archive = Paths.get("target", "app.jsa");
+        String paths = "/hello";
+        String mainClass = TrainingServer.class.getName();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--archive":
+                    archive = Paths.get(args[++i]);
+                    break;
+                case "--paths":
+                    paths = args[++i];
+                    break;
+                default:
+                    mainClass = args[i];
+            }
+        }
+        if (archive.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(archive.toAbsolutePath().getParent());
+        }
+
+        System.out.printf("Training %s into %s%n", mainClass, archive);
+        start(mainClass, "-XX:ArchiveClassesAtExit=" + archive, "-Dot.server.cds.mode=train", "-Dot.server.cds.paths=" + paths);
+
+        final List<Long> baseline = new ArrayList<>();
+        final List<Long> shared = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            // Interleaved, so drift (page cache, thermal) hits both alike
+            baseline.add(start(mainClass, "-Dot.server.cds.mode=measure"));
+            shared.add(start(mainClass, "-XX:SharedArchiveFile=" + archive, "-Dot.server.cds.mode=measure"));
+        }
+        final long without = median(baseline);
+        final long with = median(shared);
+        System.out.printf("Ready after JVM start, median of %d: without archive %d ms %s, with archive %d ms %s%n",
+                runs, without, baseline, with, shared);
+        System.out.printf("AppCDS saves %d ms (%.1f%%)%n", without - with, 100.0 * (without - with) / without);
+    }
+
+    /**
+     * @return milliseconds from JVM start to ready, as reported by the child
+     */
+    private static long start(String mainClass, String... jvmArgs) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmArgs));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        long ready = -1;
+        final List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                if (line.startsWith(ClassDataSharing.READY_MARKER)) {
+                    ready = Long.parseLong(line.substring(ClassDataSharing.READY_MARKER.length()).trim());
+                }
+            }
+        }
+        final int exit = process.waitFor();
+        if (exit != 0 || ready < 0) {
+            output.forEach(System.err::println);
+            throw new IllegalStateException("Application exited with " + exit + " without reporting readiness: " + command);
+        }
+        return ready;
+    }
+
+    private static long median(List<Long> values) {
+        final List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * The {@link ServerBenchmark} server on an ephemeral port.
+     */
+    public static final class TrainingServer {
+        private TrainingServer() {
+            /* main class */
+        }
+
+        public static void main(String[] args) {
+            OTApplication.run(ServerBenchmark.BenchmarkServer.class, args, Collections.<String, Object>singletonMap("server.port", "0"));
+        }
+    }
+}
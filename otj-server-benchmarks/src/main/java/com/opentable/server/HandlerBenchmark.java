@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.opentable.logging.jetty.JsonRequestLog;
+import com.opentable.logging.jetty.JsonRequestLogConfig;
+
+/**
+ * Per request cost of the Jetty handlers otj-server wraps around every application, each in isolation on a
+ * {@link LocalConnector} (in memory, no sockets). {@code none} is the cost of Jetty parsing and generating a
+ * minimal exchange; {@code error} drives a 404 through {@link ConservedHeadersJettyErrorHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerBenchmark {
+    private static final String REQUEST = "GET /api/v2/restaurants/12345/availability HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "OT-RequestId: 4e5b7c2a-bc1f-4a4e-9a77-1d3d3c0f6e21\r\n"
+            + "\r\n";
+
+    @Param({"none", "statistics", "request-log", "error"})
+    public String handler;
+
+    private Server server;
+    private LocalConnector connector;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        server = new Server();
+        connector = new LocalConnector(server);
+        server.addConnector(connector);
+        server.setHandler(createHandler());
+        server.start();
+    }
+
+    private Handler createHandler() {
+        final Handler ok = new OkHandler();
+        switch (handler) {
+            case "none":
+                return ok;
+            case "statistics":
+                final StatisticsHandler stats = new StatisticsHandler();
+                stats.setHandler(ok);
+                return stats;
+            case "request-log":
+                final RequestLogHandler log = new RequestLogHandler();
+                log.setRequestLog(new JsonRequestLog(Clock.systemUTC(), new JsonRequestLogConfig()));
+                log.setHandler(ok);
+                return log;
+            case "error":
+                // No servlets, so every request ends up in the error handler as a 404
+                final ServletContextHandler context = new ServletContextHandler();
+                context.setErrorHandler(new ConservedHeadersJettyErrorHandler(new ErrorPageErrorHandler(), false));
+                return context;
+            default:
+                throw new IllegalArgumentException(handler);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public String exchange() throws Exception {
+        return connector.getResponse(REQUEST);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HandlerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private static class OkHandler extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+            baseRequest.setHandled(true);
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType("text/plain");
+            response.getWriter().print("ok");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.opentable.server.ThreadNameFilterConfiguration.ThreadNameFilter;
+
+/**
+ * Compares the original {@code String.format} based thread naming with the cached builder.
+ * Run {@link #main(String[])} from the IDE, or {@code java -jar target/benchmarks.jar ThreadNameFilter -prof gc};
+ * allocation rate is reported by the GC profiler as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadNameFilterBenchmark {
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v2/restaurants/12345/availability");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    private final Filter legacy = new LegacyThreadNameFilter();
+    private final Filter cached = new ThreadNameFilter();
+    private final Filter sampled = new ThreadNameFilter(ThreadNameFilter.DEFAULT_MAX_URI_LENGTH, 16);
+
+    @Benchmark
+    public void legacy() throws IOException, ServletException {
+        legacy.doFilter(request, response, chain);
+    }
+
+    @Benchmark
+    public void cached() throws IOException, ServletException {
+        cached.doFilter(request, response, chain);
+    }
+
+    @Benchmark
+    public void sampled() throws IOException, ServletException {
+        sampled.doFilter(request, response, chain);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThreadNameFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /** The filter as it was before the cached builder, kept as the baseline. */
+    static class LegacyThreadNameFilter implements Filter {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            final HttpServletRequest req = (HttpServletRequest) request;
+            final String name = Thread.currentThread().getName();
+            try {
+                try {
+                    Thread.currentThread()
+                        .setName(String.format("%s:%s", Instant.now().toString(), req.getRequestURI()));
+                } finally {
+                    chain.doFilter(request, response);
+                }
+            } finally {
+                Thread.currentThread().setName(name);
+            }
+        }
+    }
+}
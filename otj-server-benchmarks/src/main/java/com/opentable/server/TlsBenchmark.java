@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.web.servlet.ServletComponentScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.opentable.service.ServiceInfo;
+
+/**
+ * Server side TLS cost per {@code sslProvider}: full handshakes per second, and bulk throughput of 1 MiB responses
+ * over kept alive connections. The client always uses the JDK provider, so differences between providers are
+ * the server's; absolute numbers include the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class TlsBenchmark {
+    static final int PAYLOAD_BYTES = 1024 * 1024;
+
+    @Param({"jdk", "Conscrypt"})
+    public String sslProvider;
+
+    private ConfigurableApplicationContext context;
+    private Path keystore;
+    private SSLContext clientContext;
+    private int port;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, GeneralSecurityException {
+        keystore = Files.createTempFile("tls-benchmark", ".p12");
+        try (InputStream in = TlsBenchmark.class.getResourceAsStream("/tls/benchmark.p12")) {
+            Files.copy(in, keystore, StandardCopyOption.REPLACE_EXISTING);
+        }
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("ot.httpserver.connector.default-http.protocol", "https");
+        properties.put("ot.httpserver.connector.default-http.keystore", keystore.toString());
+        properties.put("ot.httpserver.connector.default-http.sslProvider", sslProvider);
+        context = OTApplication.run(BenchmarkServer.class, new String[0], properties);
+        port = context.getBean(HttpServerInfo.class).getPort();
+
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, new TrustManager[] {new TrustAll()}, null);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).sslContext(clientContext).build();
+        request = HttpRequest.newBuilder(URI.create("https://localhost:" + port + "/bytes")).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        Files.deleteIfExists(keystore);
+    }
+
+    @Benchmark
+    public String fullHandshake() throws IOException {
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", port)) {
+            socket.startHandshake();
+            // Never resume, every iteration pays for a full handshake
+            socket.getSession().invalidate();
+            return socket.getSession().getCipherSuite();
+        }
+    }
+
+    @Benchmark
+    public long bulk() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).headers().firstValueAsLong("Content-Length").orElse(0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TlsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Configuration
+    @CoreHttpServerCommon
+    @ServletComponentScan(basePackageClasses = BenchmarkServer.class)
+    public static class BenchmarkServer {
+        @Bean
+        public ServiceInfo getServiceInfo() {
+            return () -> "benchmark";
+        }
+    }
+
+    @WebServlet(urlPatterns = {"/bytes/*"}, loadOnStartup = 1)
+    public static class BytesServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+        private static final byte[] PAYLOAD = new byte[PAYLOAD_BYTES];
+
+        static {
+            Arrays.fill(PAYLOAD, (byte) 'x');
+        }
+
+        @Override
+        public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            response.setContentType("application/octet-stream");
+            response.setContentLength(PAYLOAD.length);
+            response.getOutputStream().write(PAYLOAD);
+        }
+    }
+
+    private static final class TrustAll implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Meter;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * Admission control in front of the whole handler chain. Requests beyond the current concurrency limit are
+ * rejected immediately with a {@code 503} and a {@code Retry-After} header, instead of queueing behind a slow
+ * dependency. The limit adapts to observed latency, see {@link VegasConcurrencyLimit}. Management connectors are
+ * not limited.
+ */
+@ManagedObject("Adaptive concurrency limit admission control")
+public class AdmissionControlHandler extends HandlerWrapper {
+    private final VegasConcurrencyLimit limit;
+    private final String retryAfter;
+    private final Set<String> managementConnectors;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Meter rejected = new Meter();
+
+    AdmissionControlHandler(VegasConcurrencyLimit limit, Duration retryAfter, Set<String> managementConnectors) {
+        this.limit = limit;
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+        this.managementConnectors = managementConnectors;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (!baseRequest.getHttpChannelState().isInitial() || ManagementConnectors.isManagement(baseRequest, managementConnectors)) {
+            // Async re-dispatch of a request we already admitted, or a probe
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        final int startInFlight = tryAcquire();
+        if (startInFlight < 0) {
+            rejected.mark();
+            baseRequest.setHandled(true);
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeader.RETRY_AFTER.asString(), retryAfter);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Release(start, startInFlight));
+            } else {
+                release(start, startInFlight, false);
+            }
+        }
+    }
+
+    private int tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private void release(long start, int startInFlight, boolean dropped) {
+        inFlight.decrementAndGet();
+        limit.onSample(System.nanoTime() - start, startInFlight, dropped);
+    }
+
+    @ManagedAttribute("Current concurrency limit")
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    @ManagedAttribute("Requests currently admitted")
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @ManagedAttribute("Requests rejected since startup")
+    public long getRejected() {
+        return rejected.getCount();
+    }
+
+    Meter getRejectedMeter() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionControlHandler{" + limit + ", inFlight=" + inFlight + ", rejected=" + rejected.getCount() + '}';
+    }
+
+    private final class Release implements AsyncListener {
+        private final long start;
+        private final int startInFlight;
+        private volatile boolean timedOut;
+
+        Release(long start, int startInFlight) {
+            this.start = start;
+            this.startInFlight = startInFlight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(start, startInFlight, timedOut);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            timedOut = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
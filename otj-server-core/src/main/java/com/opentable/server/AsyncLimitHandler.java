@@ -0,0 +1,371 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.PropertyResolver;
+
+/**
+ * Caps how many requests run at once. Requests over a {@link Limit} are suspended with servlet async, so they hold
+ * no worker thread, and are dispatched again as slots free up, in the order of the limit's waiting queue. Requests
+ * beyond the queue bound, or waiting longer than their group allows, are rejected with a {@code 503}.
+ *
+ * <p>A request parked here keeps whatever slot an outer limiter gave it, so at most one subclass is installed, and not
+ * together with admission control, see {@link #checkExclusive}.
+ *
+ * @param <G> the group a request belongs to, which picks its limit and wait time and carries its metrics
+ */
+abstract class AsyncLimitHandler<G> extends HandlerWrapper {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLimitHandler.class);
+
+    private static final List<String> EXCLUSIVE = List.of(
+            "ot.server.bulkhead.enabled", "ot.server.priority-queue.enabled", "ot.server.admission-control.enabled");
+
+    private final String dispatchedAttribute = getClass().getName() + ".dispatched";
+    private final String retryAfter;
+    private final AtomicLong sequence = new AtomicLong();
+
+    AsyncLimitHandler(Duration retryAfter) {
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+    }
+
+    /**
+     * Fails unless the limiter enabled by {@code enabledProperty} is the only one. A parked request keeps what an outer
+     * limiter gave it: another limiter's slot, or an admission control slot whose round trip sample would then include
+     * the time parked and collapse the adaptive limit.
+     */
+    static void checkExclusive(PropertyResolver environment, String enabledProperty) {
+        final List<String> others = EXCLUSIVE.stream()
+                .filter(property -> !property.equals(enabledProperty))
+                .filter(property -> environment.getProperty(property, Boolean.class, false))
+                .collect(Collectors.toList());
+        if (!others.isEmpty()) {
+            throw new IllegalStateException("'" + enabledProperty + "' cannot be set together with " + others);
+        }
+    }
+
+    /**
+     * @return the group of a new request, or null to run it without any limit
+     */
+    abstract G groupOf(String target, Request request);
+
+    abstract Limit limitOf(G group);
+
+    abstract long maxWaitMillis(G group);
+
+    /**
+     * @return whether a request the application suspends with servlet async keeps its slot until it completes, though
+     * it holds no thread; otherwise the slot is given back as soon as the request suspends
+     */
+    boolean holdsAsync() {
+        return true;
+    }
+
+    /**
+     * A request got a slot, after waiting for the given time (0 if it did not wait).
+     */
+    void admitted(G group, long waitedNanos) {
+    }
+
+    /**
+     * A request was rejected because the waiting queue was full.
+     */
+    void rejected(G group) {
+    }
+
+    /**
+     * A waiting request was rejected because it waited too long.
+     */
+    void expired(G group, long waitedNanos) {
+    }
+
+    /**
+     * The number of waiting requests of a group changed by {@code delta}.
+     */
+    void queued(G group, int delta) {
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (!baseRequest.getHttpChannelState().isInitial()) {
+            @SuppressWarnings("unchecked")
+            final Waiter dispatched = (Waiter) request.getAttribute(dispatchedAttribute);
+            if (dispatched == null) {
+                // Async re-dispatch by the application, of a request that already holds its slot
+                super.handle(target, baseRequest, request, response);
+            } else {
+                // Dispatched by us with a slot handed over in release(). The request never got past this handler, so
+                // the context, filters and servlet see it as the REQUEST it is, not an ASYNC re-dispatch: filters
+                // registered for REQUEST only, like RESTEasy's dispatcher, would otherwise never run for it.
+                request.removeAttribute(dispatchedAttribute);
+                baseRequest.setDispatcherType(DispatcherType.REQUEST);
+                admitted(dispatched.group, System.nanoTime() - dispatched.enqueued);
+                run(dispatched.limit, target, baseRequest, request, response);
+            }
+            return;
+        }
+
+        final G group = groupOf(target, baseRequest);
+        if (group == null) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        final Limit limit = limitOf(group);
+        if (limit.tryAcquire()) {
+            admitted(group, 0);
+            run(limit, target, baseRequest, request, response);
+        } else if (!limit.park(group, baseRequest)) {
+            rejected(group);
+            baseRequest.setHandled(true);
+            reject(response);
+        }
+    }
+
+    private void run(Limit limit, String target, Request baseRequest, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException, ServletException {
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            if (request.isAsyncStarted() && holdsAsync()) {
+                request.getAsyncContext().addListener(new Release(limit));
+            } else {
+                limit.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeader.RETRY_AFTER.asString(), retryAfter);
+    }
+
+    /**
+     * A concurrency cap with its own waiting queue. The queue decides who runs next: a
+     * {@link java.util.concurrent.ConcurrentLinkedQueue} gives arrival order, a
+     * {@link java.util.concurrent.PriorityBlockingQueue} any other. The bound is enforced here.
+     */
+    final class Limit {
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final Queue<Waiter> waiting;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+
+        Limit(int maxConcurrent, int maxQueued, Queue<Waiter> waiting) {
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+            this.maxQueued = Math.max(0, maxQueued);
+            this.waiting = waiting;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                final int current = active.get();
+                if (current >= maxConcurrent) {
+                    return false;
+                }
+                if (active.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Suspends the request until a slot frees up, unless the queue is full.
+         */
+        boolean park(G group, Request request) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return false;
+            }
+            final AsyncContext context = request.startAsync();
+            final Waiter waiter = new Waiter(group, this, context);
+            context.setTimeout(maxWaitMillis(group));
+            context.addListener(new Expire(waiter));
+            queued(group, 1);
+            waiting.add(waiter);
+            // A slot may have been released between tryAcquire() and add()
+            if (tryAcquire()) {
+                handOver();
+            }
+            return true;
+        }
+
+        /**
+         * Hands the slot just acquired to the next waiting request, or gives it back.
+         */
+        private void handOver() {
+            while (true) {
+                final Waiter next = waiting.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                    // Someone may have parked after the poll
+                    if (waiting.isEmpty() || !tryAcquire()) {
+                        return;
+                    }
+                    continue;
+                }
+                queued.decrementAndGet();
+                queued(next.group, -1);
+                next.context.getRequest().setAttribute(dispatchedAttribute, next);
+                try {
+                    next.context.dispatch();
+                    return;
+                } catch (IllegalStateException e) {
+                    // Completed or expired in the meantime, try the next one
+                    LOG.debug("Could not dispatch waiting request of {}", next.group, e);
+                }
+            }
+        }
+
+        void release() {
+            if (waiting.isEmpty()) {
+                active.decrementAndGet();
+                // Someone may have parked after the isEmpty() check
+                if (!waiting.isEmpty() && tryAcquire()) {
+                    handOver();
+                }
+            } else {
+                handOver();
+            }
+        }
+
+        /**
+         * Stops waiting for a slot.
+         * @return whether the request was still waiting, and so must be answered by the caller
+         */
+        boolean abandon(Waiter waiter) {
+            if (waiting.remove(waiter)) {
+                queued.decrementAndGet();
+                queued(waiter.group, -1);
+                return true;
+            }
+            return false;
+        }
+
+        int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        int getMaxQueued() {
+            return maxQueued;
+        }
+
+        int getActive() {
+            return active.get();
+        }
+
+        int getQueued() {
+            return queued.get();
+        }
+    }
+
+    /**
+     * A suspended request. The sequence number breaks ties in arrival order.
+     */
+    final class Waiter {
+        final G group;
+        final long enqueued = System.nanoTime();
+        final long sequence = AsyncLimitHandler.this.sequence.getAndIncrement();
+        private final Limit limit;
+        private final AsyncContext context;
+
+        Waiter(G group, Limit limit, AsyncContext context) {
+            this.group = group;
+            this.limit = limit;
+            this.context = context;
+        }
+    }
+
+    private final class Expire implements AsyncListener {
+        private final Waiter waiter;
+
+        Expire(Waiter waiter) {
+            this.waiter = waiter;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (waiter.limit.abandon(waiter)) {
+                expired(waiter.group, System.nanoTime() - waiter.enqueued);
+                reject((HttpServletResponse) event.getSuppliedResponse());
+                event.getAsyncContext().complete();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Client went away while waiting
+            waiter.limit.abandon(waiter);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            waiter.limit.abandon(waiter);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // not interested in later async cycles of the application
+        }
+    }
+
+    private final class Release implements AsyncListener {
+        private final Limit limit;
+
+        Release(Limit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
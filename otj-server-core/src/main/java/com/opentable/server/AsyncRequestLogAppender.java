@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.Meter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Takes over delivery of request log events from a logger. The request thread only builds the event
+ * and drops it into a {@link BoundedRingBuffer}; a dedicated writer thread drains it in batches and hands
+ * each event to the appenders that would otherwise have been called inline (the logger's own appenders,
+ * plus its ancestors' when additive). Serialization and appender I/O therefore never run on a Jetty worker.
+ * <p>
+ * Installing changes the logback configuration of that logger: its own appenders are detached and it is made
+ * non-additive, with this appender as its only appender. {@link #uninstall()} puts both back. Reconfiguring logback
+ * in between, e.g. with {@code scan="true"}, undoes the takeover.
+ */
+public class AsyncRequestLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** What to do with an event when the buffer is full. */
+    public enum OverflowPolicy {
+        /** Drop the event and count it. */
+        DROP,
+        /** Wait for the writer to make room. */
+        BLOCK,
+    }
+
+    private final BoundedRingBuffer<ILoggingEvent> buffer;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Meter dropped = new Meter();
+    private final Meter written = new Meter();
+    private final List<Appender<ILoggingEvent>> ownAppenders = new ArrayList<>();
+    private final List<Appender<ILoggingEvent>> downstream = new ArrayList<>();
+
+    private Logger logger;
+    private boolean wasAdditive;
+    private volatile boolean writerIdle;
+    private volatile Thread writer;
+
+    AsyncRequestLogAppender(int queueSize, int batchSize, OverflowPolicy overflowPolicy) {
+        this.buffer = new BoundedRingBuffer<>(queueSize);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        setName("async-request-log");
+    }
+
+    /**
+     * Route all events of {@code target} through this appender.
+     * @param target the request logger
+     */
+    synchronized void install(Logger target) {
+        final LoggerContext loggerContext = target.getLoggerContext();
+        setContext(loggerContext);
+        this.logger = target;
+        this.wasAdditive = target.isAdditive();
+
+        for (Iterator<Appender<ILoggingEvent>> it = target.iteratorForAppenders(); it.hasNext();) {
+            ownAppenders.add(it.next());
+        }
+        downstream.addAll(ownAppenders);
+        if (wasAdditive) {
+            // Logback does not expose the parent, walk the name hierarchy instead
+            String name = target.getName();
+            int dot;
+            while ((dot = name.lastIndexOf('.')) > 0) {
+                name = name.substring(0, dot);
+                if (!collect(loggerContext.getLogger(name))) {
+                    break;
+                }
+            }
+            if (dot <= 0) {
+                collect(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME));
+            }
+        }
+
+        start();
+        ownAppenders.forEach(target::detachAppender);
+        target.setAdditive(false);
+        target.addAppender(this);
+    }
+
+    private boolean collect(Logger ancestor) {
+        for (Iterator<Appender<ILoggingEvent>> it = ancestor.iteratorForAppenders(); it.hasNext();) {
+            downstream.add(it.next());
+        }
+        return ancestor.isAdditive();
+    }
+
+    /**
+     * Restore the logger to synchronous delivery, writing out anything still buffered.
+     */
+    synchronized void uninstall() {
+        if (logger == null) {
+            return;
+        }
+        logger.detachAppender(this);
+        stop();
+        ownAppenders.forEach(logger::addAppender);
+        logger.setAdditive(wasAdditive);
+        logger = null;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        final Thread thread = new Thread(this::drain, getName() + "-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        super.start();
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        final Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                // Delivering concurrently with the writer would run the appenders on two threads
+                addWarn("Writer did not exit, leaving " + buffer.size() + " buffered events to it");
+                return;
+            }
+        }
+        // Anything left over is written from the stopping thread
+        deliver(new ArrayList<>(buffer.size()), Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (!buffer.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                dropped.mark();
+                return;
+            }
+            while (!buffer.offer(event)) {
+                if (!isStarted()) {
+                    dropped.mark();
+                    return;
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+        if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drain() {
+        final List<ILoggingEvent> batch = new ArrayList<>(batchSize);
+        while (isStarted()) {
+            if (deliver(batch, batchSize) == 0) {
+                writerIdle = true;
+                if (buffer.size() == 0 && isStarted()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerIdle = false;
+            }
+        }
+    }
+
+    private int deliver(List<ILoggingEvent> batch, int max) {
+        final int count = buffer.drainTo(batch, max);
+        for (ILoggingEvent event : batch) {
+            for (Appender<ILoggingEvent> appender : downstream) {
+                try {
+                    appender.doAppend(event);
+                } catch (RuntimeException e) {
+                    addError("Appender " + appender.getName() + " failed", e);
+                }
+            }
+        }
+        written.mark(count);
+        batch.clear();
+        return count;
+    }
+
+    /** @return events waiting to be written */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /** @return events dropped because the buffer was full */
+    public long getDropped() {
+        return dropped.getCount();
+    }
+
+    Meter getDroppedMeter() {
+        return dropped;
+    }
+
+    /** @return events handed to the downstream appenders */
+    public long getWritten() {
+        return written.getCount();
+    }
+
+    Meter getWrittenMeter() {
+        return written;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncRequestLogAppender{capacity=" + buffer.capacity() + ", batchSize=" + batchSize
+                + ", overflowPolicy=" + overflowPolicy + ", downstream="
+                + downstream.stream().map(Appender::getName).collect(Collectors.toList()) + '}';
+    }
+}
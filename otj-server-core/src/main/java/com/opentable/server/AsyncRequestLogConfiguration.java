@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.Locale;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.math.IntMath;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+import com.opentable.logging.jetty.JsonRequestLog;
+import com.opentable.server.AsyncRequestLogAppender.OverflowPolicy;
+
+/**
+ * Moves request log serialization and appender I/O off the Jetty worker threads.
+ *
+ * {@link JsonRequestLog} still captures each request on the worker (the Jetty request is recycled as soon as
+ * it returns), but its events are handed to an {@link AsyncRequestLogAppender} instead of being encoded inline.
+ */
+@Configuration
+@Conditional(AsyncRequestLogConfiguration.InstallAsyncRequestLog.class)
+public class AsyncRequestLogConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestLogConfiguration.class);
+    static final String METRIC_PREFIX = "http-server.request-log.";
+
+    /**
+     * queueSize - capacity of the ring buffer, rounded up to a power of two
+     */
+    @Value("${ot.server.request-log.async.queue-size:8192}")
+    private int queueSize;
+
+    /**
+     * batchSize - maximum number of events the writer hands over per batch
+     */
+    @Value("${ot.server.request-log.async.batch-size:256}")
+    private int batchSize;
+
+    /**
+     * overflowPolicy - drop (and count) or block when the buffer is full
+     */
+    @Value("${ot.server.request-log.async.overflow-policy:drop}")
+    private String overflowPolicy;
+
+    public static class InstallAsyncRequestLog implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.request-log.async.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean(destroyMethod = "uninstall")
+    public AsyncRequestLogAppender asyncRequestLogAppender(MetricRegistry metrics) {
+        final AsyncRequestLogAppender appender = new AsyncRequestLogAppender(
+                IntMath.ceilingPowerOfTwo(Math.max(2, queueSize)), Math.max(1, batchSize),
+                OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT)));
+        appender.install((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(JsonRequestLog.class));
+        // This rewires a logger in the global logback configuration, so say exactly what changed
+        LOG.info("Request logging is asynchronous: {}. Logger {} now only has this appender and is not additive, "
+                + "until the application context closes", appender, JsonRequestLog.class.getName());
+
+        metrics.register(METRIC_PREFIX + "queue-depth", (Gauge<Integer>) appender::getQueueDepth);
+        metrics.register(METRIC_PREFIX + "dropped", appender.getDroppedMeter());
+        metrics.register(METRIC_PREFIX + "written", appender.getWrittenMeter());
+        return appender;
+    }
+}
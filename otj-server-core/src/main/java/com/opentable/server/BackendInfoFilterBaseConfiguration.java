@@ -17,6 +17,9 @@ import java.util.Map;
 
 import com.google.common.collect.ImmutableMap;
 
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+
 import com.opentable.service.AppInfo;
 import com.opentable.service.ServiceInfo;
 
@@ -53,6 +56,17 @@ public abstract class BackendInfoFilterBaseConfiguration {
         return builder.build();
     }
 
+    /**
+     * @return the headers from {@link #assembleInfo(AppInfo, ServiceInfo)}, encoded once so Jetty can copy the
+     * bytes straight into each response
+     * @param headers the assembled headers
+     */
+    public static HttpField[] preEncode(final Map<String, String> headers) {
+        return headers.entrySet().stream()
+                .map(e -> new PreEncodedHttpField(e.getKey(), e.getValue()))
+                .toArray(HttpField[]::new);
+    }
+
     private static String named(final String name) {
         return HEADER_PREFIX + name;
     }
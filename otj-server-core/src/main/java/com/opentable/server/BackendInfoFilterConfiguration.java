@@ -24,6 +24,9 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.server.Response;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
@@ -49,9 +52,11 @@ public class BackendInfoFilterConfiguration extends BackendInfoFilterBaseConfigu
 
     public static class BackendInfoFilter implements Filter {
         private final Map<String, String> headers;
+        private final HttpField[] encodedHeaders;
 
         BackendInfoFilter(final AppInfo appInfo, final ServiceInfo serviceInfo) {
             headers = assembleInfo(appInfo, serviceInfo);
+            encodedHeaders = preEncode(headers);
         }
 
         @Override
@@ -62,7 +67,13 @@ public class BackendInfoFilterConfiguration extends BackendInfoFilterBaseConfigu
                 throws IOException, ServletException {
             // If transfer encoding ends up being chunked, setting these after execution of the filter chain results
             // in these added headers being ignored.  We therefore add them before chain execution.  See OTPL-1698.
-            if (response instanceof HttpServletResponse) {
+            if (response instanceof Response) {
+                // Unwrapped Jetty response: skip header validation and encoding, the fields are static
+                final HttpFields.Mutable fields = ((Response) response).getHttpFields();
+                for (HttpField field : encodedHeaders) {
+                    fields.add(field);
+                }
+            } else if (response instanceof HttpServletResponse) {
                 final HttpServletResponse httpResponse = (HttpServletResponse) response;
                 headers.forEach(httpResponse::addHeader);
             }
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+/**
+ * A bulkhead partition, bound from {@code ot.server.bulkhead.partition.<name>}. A request belongs to the first
+ * partition whose connectors and path prefixes both match; an empty list matches everything.
+ */
+public interface BulkheadConfig {
+    /**
+     * Comma separated path prefixes, e.g. {@code /search,/reports}.
+     */
+    default String getPaths() {
+        return "";
+    }
+
+    /**
+     * Comma separated connector names, e.g. {@code default-http}.
+     */
+    default String getConnectors() {
+        return "";
+    }
+
+    /**
+     * Requests of this partition running at the same time.
+     */
+    default int getMaxConcurrent() {
+        return 10;
+    }
+
+    /**
+     * Requests of this partition parked, without a thread, while waiting for a slot. Beyond that, requests are rejected.
+     */
+    default int getMaxQueued() {
+        return 100;
+    }
+
+    /**
+     * Longest a parked request waits for a slot before it is rejected, in milliseconds.
+     */
+    default long getMaxWaitMillis() {
+        return 30_000;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Splitter;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * Isolates routes from each other. Requests are assigned to a partition by connector name and path prefix; each
+ * partition caps how many of its requests run at once. Requests over the cap are suspended with servlet async, so
+ * they hold no worker thread, and are dispatched again in arrival order as slots free up. Requests beyond the
+ * queue bound, or waiting longer than allowed, are rejected with a {@code 503}. A slow route can therefore only
+ * occupy its own share of the worker threads, leaving the rest to health checks and cheap reads. Management
+ * connectors only belong to partitions that name them.
+ */
+@ManagedObject("Per route concurrency partitions")
+public class BulkheadHandler extends AsyncLimitHandler<BulkheadHandler.Partition> {
+    private static final Splitter SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();
+    private final Set<String> managementConnectors;
+
+    BulkheadHandler(Map<String, BulkheadConfig> configs, Duration retryAfter, Set<String> managementConnectors) {
+        super(retryAfter);
+        configs.forEach((name, config) -> partitions.put(name, new Partition(name, config)));
+        this.managementConnectors = managementConnectors;
+    }
+
+    @Override
+    Partition groupOf(String target, Request request) {
+        final Connector connector = request.getHttpChannel().getConnector();
+        final String connectorName = connector == null ? null : connector.getName();
+        for (Partition partition : partitions.values()) {
+            if (partition.matches(connectorName, target)) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    Limit limitOf(Partition partition) {
+        return partition.limit;
+    }
+
+    @Override
+    long maxWaitMillis(Partition partition) {
+        return partition.maxWaitMillis;
+    }
+
+    @Override
+    void rejected(Partition partition) {
+        partition.rejected.mark();
+    }
+
+    @Override
+    void expired(Partition partition, long waitedNanos) {
+        partition.timedOut.mark();
+        partition.rejected.mark();
+    }
+
+    Map<String, Partition> getPartitions() {
+        return Collections.unmodifiableMap(partitions);
+    }
+
+    @ManagedOperation(value = "Active / max concurrent, queued and rejected requests per partition", impact = "INFO")
+    public String getPartitionStats() {
+        final StringBuilder result = new StringBuilder();
+        partitions.values().forEach(p -> result.append(p).append('\n'));
+        return result.toString();
+    }
+
+    final class Partition {
+        private final String name;
+        private final List<String> paths;
+        private final List<String> connectors;
+        private final long maxWaitMillis;
+        private final Limit limit;
+        private final Meter rejected = new Meter();
+        private final Meter timedOut = new Meter();
+
+        Partition(String name, BulkheadConfig config) {
+            this.name = name;
+            this.paths = SPLITTER.splitToList(config.getPaths());
+            this.connectors = SPLITTER.splitToList(config.getConnectors());
+            this.maxWaitMillis = config.getMaxWaitMillis();
+            this.limit = new Limit(config.getMaxConcurrent(), config.getMaxQueued(), new ConcurrentLinkedQueue<>());
+        }
+
+        boolean matches(String connectorName, String target) {
+            if (connectors.isEmpty() ? managementConnectors.contains(connectorName) : !connectors.contains(connectorName)) {
+                return false;
+            }
+            return paths.isEmpty() || paths.stream().anyMatch(target::startsWith);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getMaxConcurrent() {
+            return limit.getMaxConcurrent();
+        }
+
+        int getActive() {
+            return limit.getActive();
+        }
+
+        int getQueued() {
+            return limit.getQueued();
+        }
+
+        double getUtilization() {
+            return (double) limit.getActive() / limit.getMaxConcurrent();
+        }
+
+        long getRejected() {
+            return rejected.getCount();
+        }
+
+        Meter getRejectedMeter() {
+            return rejected;
+        }
+
+        long getTimedOut() {
+            return timedOut.getCount();
+        }
+
+        Meter getTimedOutMeter() {
+            return timedOut;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": active=" + getActive() + "/" + getMaxConcurrent() + ", queued=" + getQueued() + "/"
+                    + limit.getMaxQueued() + ", rejected=" + getRejected() + ", timedOut=" + getTimedOut();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.QuotedCSV;
+import org.eclipse.jetty.http.QuotedQualityCSV;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.DefaultServlet;
+
+import com.opentable.server.StaticResourceCache.CachedResource;
+import com.opentable.server.StaticResourceCache.Variant;
+
+/**
+ * {@link DefaultServlet} that answers plain GET and HEAD requests from a {@link StaticResourceCache}.
+ * Range and included requests, directories, and anything the cache declines fall through to
+ * {@link MappedFileResourceServlet} and from there to the {@link DefaultServlet} behaviour.
+ */
+class CachingStaticResourceServlet extends MappedFileResourceServlet {
+    private static final long serialVersionUID = 1L;
+
+    private final transient StaticResourceCache cache;
+
+    CachingStaticResourceServlet(StaticResourceCache cache, long mappedThresholdBytes) {
+        super(mappedThresholdBytes);
+        this.cache = cache;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        final CachedResource resource = request.getHeader(HttpHeader.RANGE.asString()) == null
+                && request.getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI) == null
+                ? cache.get(pathInContext(request)) : null;
+        if (resource == null) {
+            super.doGet(request, response);
+            return;
+        }
+
+        final Variant variant = select(request, resource);
+        if (resource.hasVariants()) {
+            response.addHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+        }
+        response.setHeader(HttpHeader.ETAG.asString(), variant.getEtag());
+        response.setHeader(HttpHeader.LAST_MODIFIED.asString(), resource.getLastModified());
+        if (notModified(request, resource, variant)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (resource.getContentType() != null) {
+            response.setContentType(resource.getContentType());
+        }
+        if (variant.getEncoding() != null) {
+            response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), variant.getEncoding());
+        }
+        response.setContentLength(variant.getLength());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        final ServletOutputStream out = response.getOutputStream();
+        final ByteBuffer content = variant.getContent();
+        if (out instanceof HttpOutput) {
+            // Jetty writes the cached buffer as is, no copy through the servlet stream
+            ((HttpOutput) out).sendContent(content);
+        } else {
+            final byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            out.write(bytes);
+        }
+    }
+
+    private static Variant select(HttpServletRequest request, CachedResource resource) {
+        if (!resource.hasVariants()) {
+            return resource.getIdentity();
+        }
+        final QuotedQualityCSV accepted = new QuotedQualityCSV();
+        for (String value : Collections.list(request.getHeaders(HttpHeader.ACCEPT_ENCODING.asString()))) {
+            accepted.addValue(value);
+        }
+        // Values come back best first, with q=0 already removed
+        for (String encoding : accepted.getValues()) {
+            if ("br".equalsIgnoreCase(encoding) && resource.getBrotli() != null) {
+                return resource.getBrotli();
+            }
+            if ("gzip".equalsIgnoreCase(encoding) && resource.getGzip() != null) {
+                return resource.getGzip();
+            }
+            if ("*".equals(encoding)) {
+                return resource.getBrotli() != null ? resource.getBrotli() : resource.getGzip();
+            }
+        }
+        return resource.getIdentity();
+    }
+
+    private static boolean notModified(HttpServletRequest request, CachedResource resource, Variant variant) {
+        // GzipHandler strips its own suffix from If-None-Match and keeps the header as sent aside
+        final Object original = request.getAttribute(GzipHandler.GZIP_HANDLER_ETAGS);
+        final String ifNoneMatch = original instanceof String ? (String) original : request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+        if (ifNoneMatch != null) {
+            final QuotedCSV tags = new QuotedCSV(true, ifNoneMatch);
+            for (String tag : tags.getValues()) {
+                // Weak comparison, as RFC 7232 asks for If-None-Match
+                final String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+                if ("*".equals(opaque) || variant.getEtag().equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            final long ifModifiedSince = request.getDateHeader(HttpHeader.IF_MODIFIED_SINCE.asString());
+            return ifModifiedSince != -1 && resource.getLastModifiedMillis() / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.base.Splitter;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.opentable.server.HttpServerInfo.ConnectorInfo;
+
+/**
+ * Class data sharing (AppCDS) support for {@link OTApplication}: reports whether the JVM maps a shared archive, and
+ * runs the application in a training or measuring mode selected by {@value #MODE}:
+ *
+ * <ul>
+ * <li>{@code train}: once ready, request {@value #PATHS} (comma separated, default {@code /}) {@value #ITERATIONS}
+ * times over loopback so the classes serving requests get loaded too, then exit. Run with
+ * {@code -XX:ArchiveClassesAtExit=app.jsa} to dump the archive.</li>
+ * <li>{@code measure}: exit as soon as the application is ready.</li>
+ * </ul>
+ *
+ * Both print {@value #READY_MARKER} and the milliseconds from JVM start to ready. The modes are system properties,
+ * since they have to be known before the environment exists.
+ */
+public final class ClassDataSharing implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    static final String MODE = "ot.server.cds.mode";
+    static final String PATHS = "ot.server.cds.paths";
+    static final String ITERATIONS = "ot.server.cds.iterations";
+    /** Printed to standard out once ready, followed by the milliseconds from JVM start. */
+    public static final String READY_MARKER = "CDS ready-ms=";
+
+    private static final Set<String> PLAINTEXT = Set.of("http", "h2c");
+
+    private final boolean train;
+    private volatile boolean done;
+
+    private ClassDataSharing(boolean train) {
+        this.train = train;
+    }
+
+    /**
+     * Logs whether a shared archive is in use, and installs the training or measuring listener if asked for.
+     */
+    static void install(SpringApplicationBuilder builder) {
+        logStatus();
+        final String mode = System.getProperty(MODE, "").trim().toLowerCase(Locale.ROOT);
+        switch (mode) {
+            case "":
+                return;
+            case "train":
+                builder.listeners(new ClassDataSharing(true));
+                return;
+            case "measure":
+                builder.listeners(new ClassDataSharing(false));
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown " + MODE + " '" + mode + "', expected train or measure");
+        }
+    }
+
+    /**
+     * @return true if the JVM maps a CDS archive; the JDK's own default archive counts
+     */
+    public static boolean isSharing() {
+        return System.getProperty("java.vm.info", "").contains("sharing");
+    }
+
+    /**
+     * @return the application archive given with {@code -XX:SharedArchiveFile}, or null
+     */
+    public static String getArchive() {
+        try {
+            final String archive = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                    .getVMOption("SharedArchiveFile").getValue();
+            return archive == null || archive.isEmpty() ? null : archive;
+        } catch (RuntimeException | LinkageError e) {
+            // Not HotSpot
+            return null;
+        }
+    }
+
+    private static void logStatus() {
+        final String archive = getArchive();
+        if (archive != null && isSharing()) {
+            LOG.info("Class data sharing in use with archive {}", archive);
+        } else if (archive != null) {
+            LOG.warn("Class data sharing archive {} was given but is not in use, check the JVM's -Xshare / -Xlog:cds output", archive);
+        } else {
+            LOG.info("Class data sharing {}, no application archive", isSharing() ? "on for the JDK classes" : "off");
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (done) {
+            return;
+        }
+        done = true;
+        final ConfigurableApplicationContext context = event.getApplicationContext();
+        final long readyMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        LOG.info("Ready {} ms after JVM start", readyMillis);
+        // For tooling driving this process, independent of the logging configuration
+        System.out.println(READY_MARKER + readyMillis); // NOPMD
+        // Off the main thread, so run() returns before the context is closed
+        final Thread exit = new Thread(() -> {
+            try {
+                if (train) {
+                    exercise(context);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Training failed", e);
+            } finally {
+                System.exit(SpringApplication.exit(context));
+            }
+        }, "cds-" + (train ? "train" : "measure"));
+        exit.start();
+    }
+
+    private static void exercise(ConfigurableApplicationContext context) {
+        final HttpServerInfo info = context.getBeanProvider(HttpServerInfo.class).getIfAvailable();
+        if (info == null) {
+            LOG.info("Not a web application, nothing to exercise");
+            return;
+        }
+        // Any plaintext connector will do; proxy protocol and TLS connectors can't be spoken to directly
+        final ConnectorInfo connector = info.getConnectors().values().stream()
+                .filter(c -> PLAINTEXT.contains(c.getProtocol()))
+                .min(Comparator.comparing(c -> !"default-http".equals(c.getName())))
+                .orElse(null);
+        if (connector == null) {
+            LOG.warn("No plaintext connector among {}, nothing to exercise", info.getConnectors().keySet());
+            return;
+        }
+        final List<String> paths = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(System.getProperty(PATHS, "/"));
+        final int iterations = Integer.getInteger(ITERATIONS, 10);
+        final HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < iterations; i++) {
+            for (String path : paths) {
+                final URI uri = URI.create("http://127.0.0.1:" + connector.getPort() + path);
+                try {
+                    final int status = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                    LOG.debug("Training request {} returned {}", uri, status);
+                } catch (IOException e) {
+                    LOG.warn("Training request {} failed", uri, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        LOG.info("Exercised {} paths {} times", paths.size(), iterations);
+    }
+}
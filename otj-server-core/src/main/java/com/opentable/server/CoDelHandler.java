@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Meter;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LowResourceMonitor;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controlled delay (CoDel) load shedding on the worker pool queue. Each request's wait is measured from when the
+ * selector found its connection ready to when it reaches this handler (see {@link QueueDelayServerConnector}), which
+ * covers the wait for a worker thread however Jetty handed the work over; management connectors are not sampled.
+ * If the smallest of those waits stays above {@code target} for a whole {@code interval}, there is a standing queue,
+ * not just a burst, and the server is overloaded. While overloaded, requests that waited longer than {@code target}
+ * are shed with a {@code 503}; otherwise only those that waited longer than {@code interval}. The first interval whose
+ * minimum is back under {@code target} ends the overload. Also a {@link LowResourceMonitor.LowResourceCheck}, so the
+ * low resource monitor reacts to a standing queue as well.
+ */
+@ManagedObject("CoDel load shedding on thread pool queue delay")
+public class CoDelHandler extends HandlerWrapper implements LowResourceMonitor.LowResourceCheck {
+    private static final Logger LOG = LoggerFactory.getLogger(CoDelHandler.class);
+
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final String retryAfter;
+    private final Set<String> managementConnectors;
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong intervalMin = new AtomicLong(Long.MAX_VALUE);
+    private final Meter shed = new Meter();
+    private final Meter overloads = new Meter();
+    private volatile boolean overloaded;
+    private volatile long lastMinNanos;
+
+    CoDelHandler(Duration target, Duration interval, Duration retryAfter, Set<String> managementConnectors) {
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+        this.managementConnectors = managementConnectors;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (baseRequest.getHttpChannelState().isInitial()
+                && !ManagementConnectors.isManagement(baseRequest, managementConnectors)) {
+            final long delay = QueueDelayServerConnector.queueDelayNanos(baseRequest);
+            // The same sample drives the interval minimum and this request's verdict
+            onDequeue(System.nanoTime(), delay);
+            if (shouldShed(delay)) {
+                shed.mark();
+                baseRequest.setHandled(true);
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader(HttpHeader.RETRY_AFTER.asString(), retryAfter);
+                return;
+            }
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    /**
+     * @param queueDelayNanos how long the request waited, negative if unknown
+     */
+    boolean shouldShed(long queueDelayNanos) {
+        return queueDelayNanos > (overloaded ? targetNanos : intervalNanos);
+    }
+
+    /**
+     * Records one request's wait towards the current interval's minimum.
+     */
+    void onDequeue(long nowNanos, long queueDelayNanos) {
+        if (queueDelayNanos < 0) {
+            return;
+        }
+        intervalMin.accumulateAndGet(queueDelayNanos, Math::min);
+        final long start = intervalStart.get();
+        if (nowNanos - start >= intervalNanos && intervalStart.compareAndSet(start, nowNanos)) {
+            final long min = intervalMin.getAndSet(Long.MAX_VALUE);
+            lastMinNanos = min;
+            final boolean over = min > targetNanos;
+            if (over != overloaded) {
+                overloaded = over;
+                if (over) {
+                    overloads.mark();
+                    LOG.warn("Queue delay stayed above {} us for {} ms (minimum {} us), shedding",
+                            TimeUnit.NANOSECONDS.toMicros(targetNanos), TimeUnit.NANOSECONDS.toMillis(intervalNanos),
+                            TimeUnit.NANOSECONDS.toMicros(min));
+                } else {
+                    LOG.info("Queue delay back under {} us, stopped shedding", TimeUnit.NANOSECONDS.toMicros(targetNanos));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isLowOnResources() {
+        return overloaded;
+    }
+
+    @Override
+    public String getReason() {
+        return "Minimum queue delay " + TimeUnit.NANOSECONDS.toMicros(lastMinNanos) + " us above target";
+    }
+
+    @ManagedAttribute("Whether the minimum queue delay stayed above target for the last interval")
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    @ManagedAttribute("Requests shed since startup")
+    public long getShed() {
+        return shed.getCount();
+    }
+
+    Meter getShedMeter() {
+        return shed;
+    }
+
+    @ManagedAttribute("Times the server became overloaded since startup")
+    public long getOverloads() {
+        return overloads.getCount();
+    }
+
+    Meter getOverloadsMeter() {
+        return overloads;
+    }
+
+    @ManagedAttribute("Minimum queue delay of the last complete interval, in microseconds")
+    public long getLastMinMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(lastMinNanos);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+
+/**
+ * {@link GzipHandler} limited to a set of connectors, which also measures what compression buys and costs:
+ * bytes in and out of every pooled {@link Deflater}, and the time spent inside {@code deflate}.
+ *
+ * Responses that already carry a {@code Content-Encoding} (such as precompressed static resources) are passed
+ * through untouched by {@link GzipHandler}.
+ */
+@ManagedObject("Response compression")
+public class CompressionHandler extends GzipHandler {
+    private final Set<String> connectors;
+    private final Meter bytesIn = new Meter();
+    private final Meter bytesOut = new Meter();
+    private final Meter deflateNanos = new Meter();
+
+    /**
+     * @param connectors connector names to compress on, empty for all
+     * @param level deflater level, -1 for the zlib default
+     * @param poolCapacity deflaters kept for reuse
+     */
+    CompressionHandler(Set<String> connectors, int level, int poolCapacity) {
+        this.connectors = ImmutableSet.copyOf(connectors);
+        setDeflaterPool(new InstrumentedDeflaterPool(poolCapacity, level));
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (!connectors.isEmpty() && !connectors.contains(connectorName(baseRequest))) {
+            final Handler next = getHandler();
+            if (next != null) {
+                next.handle(target, baseRequest, request, response);
+            }
+            return;
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    private static String connectorName(Request request) {
+        final Connector connector = request.getHttpChannel().getConnector();
+        return connector == null ? null : connector.getName();
+    }
+
+    @ManagedAttribute("Bytes handed to the compressor")
+    public long getBytesIn() {
+        return bytesIn.getCount();
+    }
+
+    Meter getBytesInMeter() {
+        return bytesIn;
+    }
+
+    @ManagedAttribute("Compressed bytes produced")
+    public long getBytesOut() {
+        return bytesOut.getCount();
+    }
+
+    Meter getBytesOutMeter() {
+        return bytesOut;
+    }
+
+    @ManagedAttribute("Bytes not sent thanks to compression")
+    public long getBytesSaved() {
+        return bytesIn.getCount() - bytesOut.getCount();
+    }
+
+    @ManagedAttribute("Nanoseconds spent compressing")
+    public long getDeflateNanos() {
+        return deflateNanos.getCount();
+    }
+
+    Meter getDeflateNanosMeter() {
+        return deflateNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionHandler{connectors=" + (connectors.isEmpty() ? "all" : connectors)
+                + ", minGzipSize=" + getMinGzipSize() + '}';
+    }
+
+    private final class InstrumentedDeflaterPool extends DeflaterPool {
+        private final int level;
+
+        InstrumentedDeflaterPool(int capacity, int level) {
+            super(capacity, level, true);
+            this.level = level;
+        }
+
+        @Override
+        protected Deflater newPooled() {
+            return new TimedDeflater(level);
+        }
+
+        @Override
+        protected void reset(Deflater deflater) {
+            record(deflater);
+            super.reset(deflater);
+        }
+
+        @Override
+        protected void end(Deflater deflater) {
+            record(deflater);
+            super.end(deflater);
+        }
+
+        private void record(Deflater deflater) {
+            bytesIn.mark(deflater.getBytesRead());
+            bytesOut.mark(deflater.getBytesWritten());
+        }
+    }
+
+    /**
+     * The other {@code deflate} overloads all end up in these two.
+     */
+    private final class TimedDeflater extends Deflater {
+        TimedDeflater(int level) {
+            super(level, true);
+        }
+
+        @Override
+        public int deflate(byte[] output, int off, int len, int flush) {
+            final long start = System.nanoTime();
+            try {
+                return super.deflate(output, off, len, flush);
+            } finally {
+                deflateNanos.mark(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int deflate(ByteBuffer output, int flush) {
+            final long start = System.nanoTime();
+            try {
+                return super.deflate(output, flush);
+            } finally {
+                deflateNanos.mark(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.LogarithmicArrayByteBufferPool;
+
+/**
+ * A per connector {@link ByteBufferPool} that also counts, per bucket, how often a buffer had to be allocated
+ * because the bucket was empty. Created from the {@code bufferPool*} settings of a {@link ServerConnectorConfig}.
+ */
+public interface ConnectorByteBufferPool extends ByteBufferPool {
+    int DEFAULT_FACTOR = 1024;
+    int DEFAULT_MAX_CAPACITY = 64 * 1024;
+
+    /**
+     * @param config connector configuration
+     * @return the configured pool, or null to share the server's pool
+     */
+    static ConnectorByteBufferPool create(ServerConnectorConfig config) {
+        final int maxCapacity = config.getBufferPoolMaxCapacity() > 0 ? config.getBufferPoolMaxCapacity() : DEFAULT_MAX_CAPACITY;
+        final int maxBucketSize = config.getBufferPoolMaxBucketSize() > 0 ? config.getBufferPoolMaxBucketSize() : -1;
+        switch (config.getBufferPool().trim().toLowerCase(Locale.ROOT)) {
+            case "default":
+                return null;
+            case "array":
+                final int factor = config.getBufferPoolFactor() > 0 ? config.getBufferPoolFactor() : DEFAULT_FACTOR;
+                return new Linear(factor, maxCapacity, maxBucketSize,
+                        config.getBufferPoolMaxHeapMemory(), config.getBufferPoolMaxDirectMemory());
+            case "logarithmic":
+                return new Logarithmic(maxCapacity, maxBucketSize,
+                        config.getBufferPoolMaxHeapMemory(), config.getBufferPoolMaxDirectMemory());
+            default:
+                throw new IllegalArgumentException("Unknown buffer pool '" + config.getBufferPool() + "', expected default, array or logarithmic");
+        }
+    }
+
+    /**
+     * @return capacity of each bucket, smallest first
+     */
+    int[] getBucketCapacities();
+
+    /**
+     * @param index bucket index, see {@link #getBucketCapacities()}
+     * @param direct direct or heap buffers
+     * @return buffers currently pooled in the bucket
+     */
+    int getPooled(int index, boolean direct);
+
+    /**
+     * @param index bucket index, or {@code getBucketCapacities().length} for buffers too large to pool
+     * @param direct direct or heap buffers
+     * @return buffers allocated because nothing was pooled
+     */
+    long getMisses(int index, boolean direct);
+
+    long getHeapMemory();
+
+    long getDirectMemory();
+
+    /**
+     * Allocation misses per bucket, with one extra slot for requests larger than the largest bucket.
+     */
+    final class Misses {
+        private final LongAdder[] heap;
+        private final LongAdder[] direct;
+
+        Misses(int buckets) {
+            heap = new LongAdder[buckets + 1];
+            direct = new LongAdder[buckets + 1];
+            for (int i = 0; i <= buckets; i++) {
+                heap[i] = new LongAdder();
+                direct[i] = new LongAdder();
+            }
+        }
+
+        void record(int index, boolean isDirect) {
+            final LongAdder[] counters = isDirect ? direct : heap;
+            counters[Math.min(index, counters.length - 1)].increment();
+        }
+
+        long get(int index, boolean isDirect) {
+            return (isDirect ? direct : heap)[index].sum();
+        }
+    }
+
+    /**
+     * Buckets {@code factor} bytes apart.
+     */
+    final class Linear extends ArrayByteBufferPool implements ConnectorByteBufferPool {
+        private final int factor;
+        private final int[] capacities;
+        private final Misses misses;
+
+        Linear(int factor, int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory) {
+            super(0, factor, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory);
+            this.factor = factor;
+            this.capacities = new int[maxCapacity / factor];
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = (i + 1) * factor;
+            }
+            this.misses = new Misses(capacities.length);
+        }
+
+        @Override
+        public ByteBuffer newByteBuffer(int capacity, boolean direct) {
+            misses.record(Math.max(0, capacity - 1) / factor, direct);
+            return super.newByteBuffer(capacity, direct);
+        }
+
+        @Override
+        public int[] getBucketCapacities() {
+            return capacities.clone();
+        }
+
+        @Override
+        public int getPooled(int index, boolean direct) {
+            final Bucket bucket = bucketFor(capacities[index], direct);
+            return bucket == null ? 0 : bucket.size();
+        }
+
+        @Override
+        public long getMisses(int index, boolean direct) {
+            return misses.get(index, direct);
+        }
+    }
+
+    /**
+     * Power of two buckets, few of them even for large maximum capacities.
+     */
+    final class Logarithmic extends LogarithmicArrayByteBufferPool implements ConnectorByteBufferPool {
+        private final int[] capacities;
+        private final Misses misses;
+
+        Logarithmic(int maxCapacity, int maxBucketSize, long maxHeapMemory, long maxDirectMemory) {
+            super(0, maxCapacity, maxBucketSize, maxHeapMemory, maxDirectMemory);
+            this.capacities = new int[log2Ceil(maxCapacity) + 1];
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = 1 << i;
+            }
+            this.misses = new Misses(capacities.length);
+        }
+
+        private static int log2Ceil(int capacity) {
+            return capacity <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        }
+
+        @Override
+        public ByteBuffer newByteBuffer(int capacity, boolean direct) {
+            misses.record(log2Ceil(capacity), direct);
+            return super.newByteBuffer(capacity, direct);
+        }
+
+        @Override
+        public int[] getBucketCapacities() {
+            return capacities.clone();
+        }
+
+        @Override
+        public int getPooled(int index, boolean direct) {
+            final Bucket bucket = bucketFor(capacities[index], direct);
+            return bucket == null ? 0 : bucket.size();
+        }
+
+        @Override
+        public long getMisses(int index, boolean direct) {
+            return misses.get(index, direct);
+        }
+    }
+}
@@ -53,6 +53,32 @@ import com.opentable.security.mitigation.ApplySecurityMitigations;
     EmbeddedJettyLowResourceMonitor.class,
     // Connection Limiter
     EmbeddedJettyConnectionLimit.class,
+    // Adaptive admission control
+    EmbeddedJettyAdmissionControl.class,
+    // Request logging off the worker threads
+    AsyncRequestLogConfiguration.class,
+    // Latency histograms per connector and route
+    EmbeddedJettyLatencyMetrics.class,
+    // Per connector buffer pool metrics
+    EmbeddedJettyBufferPoolMetrics.class,
+    // TLS handshake metrics
+    EmbeddedJettyTlsMetrics.class,
+    // Keystore hot reload
+    EmbeddedJettyKeyStoreReload.class,
+    // Drain in-flight requests on shutdown
+    EmbeddedJettyDrain.class,
+    // Response compression
+    EmbeddedJettyCompression.class,
+    // Warm-up before ready
+    EmbeddedJettyWarmup.class,
+    // Per route concurrency partitions
+    EmbeddedJettyBulkhead.class,
+    // Priority ordered request queue
+    EmbeddedJettyPriorityQueue.class,
+    // Drop requests past their deadline
+    EmbeddedJettyDeadline.class,
+    // CoDel load shedding on queue delay
+    EmbeddedJettyCoDel.class,
 
 })
 @ApplySecurityMitigations
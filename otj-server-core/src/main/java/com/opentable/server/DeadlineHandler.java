@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Meter;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out each request's {@link RequestDeadline} from the deadline header, or the connector's default, and
+ * answers requests whose caller has already given up with a {@code 504} before they reach the servlet filters.
+ * Installed innermost, so requests that expired while held by admission control or a queue are dropped too.
+ */
+@ManagedObject("Drops requests past their deadline")
+public class DeadlineHandler extends HandlerWrapper {
+    private static final Logger LOG = LoggerFactory.getLogger(DeadlineHandler.class);
+
+    private final String header;
+    private final boolean absolute;
+    private final Map<String, Long> connectorDefaults;
+    private final Meter withDeadline = new Meter();
+    private final Meter dropped = new Meter();
+    private final Meter malformed = new Meter();
+
+    DeadlineHandler(String header, boolean absolute, Map<String, Long> connectorDefaults) {
+        this.header = header;
+        this.absolute = absolute;
+        this.connectorDefaults = connectorDefaults;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        // Only the first time through; later async dispatches keep the deadline and are not dropped
+        if (request.getAttribute(RequestDeadline.ATTRIBUTE) == null) {
+            final RequestDeadline deadline = deadlineOf(baseRequest);
+            if (deadline != null) {
+                withDeadline.mark();
+                if (deadline.isExpired()) {
+                    dropped.mark();
+                    LOG.debug("Dropping {} {}, {} ms past its deadline", request.getMethod(), target, -deadline.remaining().toMillis());
+                    baseRequest.setHandled(true);
+                    response.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                    return;
+                }
+                request.setAttribute(RequestDeadline.ATTRIBUTE, deadline);
+            }
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    private RequestDeadline deadlineOf(Request request) {
+        final String value = request.getHeader(header);
+        if (value != null) {
+            try {
+                final long millis = Long.parseLong(value.trim());
+                return new RequestDeadline(absolute ? millis : request.getTimeStamp() + millis, true);
+            } catch (NumberFormatException e) {
+                malformed.mark();
+                LOG.debug("Ignoring malformed {} header '{}'", header, value);
+            }
+        }
+        final Connector connector = request.getHttpChannel().getConnector();
+        final Long connectorDefault = connector == null ? null : connectorDefaults.get(connector.getName());
+        return connectorDefault == null ? null : new RequestDeadline(request.getTimeStamp() + connectorDefault, false);
+    }
+
+    @ManagedAttribute("Requests that had a deadline")
+    public long getWithDeadline() {
+        return withDeadline.getCount();
+    }
+
+    Meter getWithDeadlineMeter() {
+        return withDeadline;
+    }
+
+    @ManagedAttribute("Requests dropped because their deadline had passed")
+    public long getDropped() {
+        return dropped.getCount();
+    }
+
+    Meter getDroppedMeter() {
+        return dropped;
+    }
+
+    @ManagedAttribute("Deadline headers that could not be parsed")
+    public long getMalformed() {
+        return malformed.getCount();
+    }
+
+    Meter getMalformedMeter() {
+        return malformed;
+    }
+}
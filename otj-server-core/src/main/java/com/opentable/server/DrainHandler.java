@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Counter;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.Graceful;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drains the server before it is stopped: every connector stops accepting, requests that are in flight or still
+ * arrive on open keep-alive connections are served with {@code Connection: close}, and the server's
+ * {@link StatisticsHandler} is polled until no request is active or the deadline passes.
+ */
+@ManagedObject("Drains in-flight requests before shutdown")
+public class DrainHandler extends HandlerWrapper {
+    private static final Logger LOG = LoggerFactory.getLogger(DrainHandler.class);
+
+    private final Duration timeout;
+    private final Duration pollInterval;
+    private volatile boolean draining;
+    private volatile long drainMillis = -1;
+    private final Counter cutOff = new Counter();
+
+    DrainHandler(Duration timeout, Duration pollInterval) {
+        this.timeout = timeout;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        closeIfDraining(baseRequest, response);
+        super.handle(target, baseRequest, request, response);
+        // Requests that were in flight when the drain started, and whose response is not committed yet
+        closeIfDraining(baseRequest, response);
+    }
+
+    private void closeIfDraining(Request request, HttpServletResponse response) {
+        // Clients reconnect elsewhere instead of reusing this connection; HTTP/2 has no such header
+        if (draining && isHttp1(request) && !response.isCommitted()) {
+            response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+        }
+    }
+
+    private static boolean isHttp1(Request request) {
+        return request.getHttpVersion() == HttpVersion.HTTP_1_1 || request.getHttpVersion() == HttpVersion.HTTP_1_0;
+    }
+
+    /**
+     * Blocks until the server is drained or the timeout passed.
+     */
+    void drain() {
+        final StatisticsHandler stats = getServer().getChildHandlerByClass(StatisticsHandler.class);
+        final long start = System.nanoTime();
+        draining = true;
+        for (Connector connector : getServer().getConnectors()) {
+            if (connector instanceof Graceful) {
+                ((Graceful) connector).shutdown();
+            }
+        }
+        LOG.info("Draining: stopped accepting on {} connectors, {} requests in flight", getServer().getConnectors().length,
+                stats == null ? "unknown" : stats.getRequestsActive());
+
+        final long deadline = start + timeout.toNanos();
+        int active = stats == null ? 0 : stats.getRequestsActive();
+        while (active > 0 && System.nanoTime() < deadline) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(pollInterval.toNanos(), Math.max(0, deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            active = stats.getRequestsActive();
+        }
+
+        drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        cutOff.inc(active);
+        if (active > 0) {
+            LOG.warn("Drain gave up after {} ms, cutting off {} requests", drainMillis, active);
+        } else {
+            LOG.info("Drained in {} ms", drainMillis);
+        }
+    }
+
+    @ManagedAttribute("Whether the server is draining")
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @ManagedAttribute("Duration of the drain in milliseconds, -1 before shutdown")
+    public long getDrainMillis() {
+        return drainMillis;
+    }
+
+    @ManagedAttribute("Requests still active when the drain deadline passed")
+    public long getCutOff() {
+        return cutOff.getCount();
+    }
+
+    Counter getCutOffCounter() {
+        return cutOff;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+@Configuration
+@Conditional(EmbeddedJettyAdmissionControl.InstallEmbeddedJettyAdmissionControl.class)
+public class EmbeddedJettyAdmissionControl {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJettyAdmissionControl.class);
+    static final String METRIC_PREFIX = "http-server.admission-control.";
+
+    /**
+     * initialLimit - concurrency limit to start with, before any latency has been observed
+     */
+    @Value("${ot.server.admission-control.initial-limit:20}")
+    private int initialLimit;
+
+    /**
+     * minLimit / maxLimit - bounds the adaptive limit may move between
+     */
+    @Value("${ot.server.admission-control.min-limit:1}")
+    private int minLimit;
+
+    @Value("${ot.server.admission-control.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * probeInterval - number of samples after which the no load latency is re-learned
+     */
+    @Value("${ot.server.admission-control.probe-interval:1000}")
+    private int probeInterval;
+
+    /**
+     * retryAfter - value of the Retry-After header sent with rejections, rounded to whole seconds
+     */
+    @Value("${ot.server.admission-control.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    public static class InstallEmbeddedJettyAdmissionControl implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.admission-control.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public AdmissionControlHandler admissionControlHandler(Map<String, ServerConnectorConfig> activeConnectors, MetricRegistry metrics) {
+        final AdmissionControlHandler handler = new AdmissionControlHandler(
+                new VegasConcurrencyLimit(initialLimit, minLimit, maxLimit, probeInterval), retryAfter,
+                ManagementConnectors.names(activeConnectors));
+        metrics.register(METRIC_PREFIX + "limit", (Gauge<Integer>) handler::getLimit);
+        metrics.register(METRIC_PREFIX + "in-flight", (Gauge<Integer>) handler::getInFlight);
+        metrics.register(METRIC_PREFIX + "rejected", handler.getRejectedMeter());
+        return handler;
+    }
+
+    @Bean
+    public Consumer<Server> admissionControlCustomizer(AdmissionControlHandler handler) {
+        return server -> {
+            LOG.debug("Installing admission control {}", handler);
+            handler.setHandler(server.getHandler());
+            server.setHandler(handler);
+        };
+    }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -37,6 +38,11 @@ import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableMap;
 
 import com.opentable.bucket.BucketLog;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.jmx.MBeanContainer;
 import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Connector;
@@ -48,9 +54,9 @@ import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
-import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.server.handler.RequestLogHandler;
 import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool;
@@ -78,6 +84,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import com.opentable.logging.jetty.JsonRequestLog;
 import com.opentable.logging.jetty.JsonRequestLogConfig;
 import com.opentable.server.HttpServerInfo.ConnectorInfo;
+import com.opentable.server.HttpServerInfo.ThreadMode;
 import com.opentable.spring.SpecializedConfigFactory;
 import com.opentable.util.Optionals;
 
@@ -115,6 +122,15 @@ public abstract class EmbeddedJettyBase {
     // Specifying this fails the build.
     private Integer minThreads;
 
+    // platform (default) or virtual; virtual falls back to platform when the JVM doesn't support it
+    @Value("${ot.httpserver.thread-mode:platform}")
+    private String threadMode;
+
+    /**
+     * The thread mode actually in use, which may differ from the requested {@link #threadMode}.
+     */
+    private volatile ThreadMode actualThreadMode = ThreadMode.PLATFORM;
+
     @Value("${ot.httpserver.active-connectors:default-http}")
     List<String> activeConnectors;
 
@@ -159,6 +175,15 @@ public abstract class EmbeddedJettyBase {
     @Inject
     Optional<MBeanServer> mbs;
 
+    @Inject
+    Optional<LatencyHandler> latencyHandler;
+
+    @Inject
+    Optional<DrainHandler> drainHandler;
+
+    @Inject
+    Optional<CoDelHandler> coDelHandler;
+
     private Map<String, ConnectorInfo> connectorInfos;
 
     @Bean
@@ -189,7 +214,13 @@ public abstract class EmbeddedJettyBase {
             factory.setPort(0);
         }
         if (qtpProvider.isPresent()) {
+            if (latencyHandler.isPresent()) {
+                LOG.warn("A custom thread pool is provided, 'http-server.latency.pool.job-wait' will stay empty");
+            }
             factory.setThreadPool(qtpProvider.get().get());
+        } else if (latencyHandler.isPresent()) {
+            // Job wait is only visible from inside the pool
+            factory.setThreadPool(new InstrumentedQueuedThreadPool(latencyHandler.get().getPoolJobWait()));
         }
         factory.addServerCustomizers(server -> {
             mbs.ifPresent(m -> server.addBean(new MBeanContainer(m)));
@@ -248,6 +279,7 @@ public abstract class EmbeddedJettyBase {
         final List<ConnectionFactory> factories = new ArrayList<>();
 
         final SslContextFactory.Server ssl;
+        final boolean http2;
 
         switch (config.getProtocol()) { // NOPMD
             case "proxy+http":
@@ -255,14 +287,28 @@ public abstract class EmbeddedJettyBase {
                 //$FALL-THROUGH$
             case "http":
                 ssl = null;
+                http2 = false;
+                break;
+            case "proxy+h2c":
+                factories.add(new ProxyConnectionFactory());
+                //$FALL-THROUGH$
+            case "h2c":
+                ssl = null;
+                http2 = true;
                 break;
             case "proxy+https":
                 factories.add(new ProxyConnectionFactory());
                 //$FALL-THROUGH$
             case "https":
-                ssl = new SslContextFactory.Server();
-                ssl.setKeyStorePath(config.getKeystore());
-                ssl.setKeyStorePassword(config.getKeystorePassword());
+                ssl = createSslContextFactory(name, config);
+                http2 = false;
+                break;
+            case "h2":
+                ssl = createSslContextFactory(name, config);
+                // RFC 7540 blacklists a number of ciphers, prefer the ones HTTP/2 clients will accept
+                ssl.setCipherComparator(HTTP2Cipher.COMPARATOR);
+                ssl.setUseCipherSuitesOrder(true);
+                http2 = true;
                 break;
             default:
                 throw new UnsupportedOperationException(String.format("For connector '%s', unsupported protocol '%s'", name, config.getProtocol()));
@@ -305,6 +351,7 @@ public abstract class EmbeddedJettyBase {
 
         httpConfigCustomizers.ifPresent(c -> c.forEach(h -> h.accept(httpConfig)));
         final HttpConnectionFactory http = new HttpConnectionFactory(httpConfig);
+        final AbstractHTTP2ServerConnectionFactory h2 = http2 ? createHttp2ConnectionFactory(httpConfig, config, ssl != null) : null;
 
         if (ssl != null) {
             if (!CollectionUtils.isEmpty(excludedProtocols)) {
@@ -319,14 +366,35 @@ public abstract class EmbeddedJettyBase {
                 ssl.setExcludeCipherSuites(excludedCipherSuits.toArray(new String[0]));
             }
 
-            factories.add(new SslConnectionFactory(ssl, http.getProtocol()));
+            if (h2 != null) {
+                // Negotiate h2 via ALPN, falling back to HTTP/1.1 for clients that don't offer it
+                final ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+                alpn.setDefaultProtocol(http.getProtocol());
+                factories.add(new InstrumentedSslConnectionFactory(ssl, alpn.getProtocol()));
+                factories.add(alpn);
+                factories.add(h2);
+            } else {
+                factories.add(new InstrumentedSslConnectionFactory(ssl, http.getProtocol()));
+            }
         }
 
         factories.add(http);
+        if (h2 != null && ssl == null) {
+            // h2c is reached either by prior knowledge or by HTTP/1.1 Upgrade
+            factories.add(h2);
+        }
 
+        // null keeps the server's shared pool
+        final ConnectorByteBufferPool bufferPool = ConnectorByteBufferPool.create(config);
         @SuppressWarnings("PMD.CloseResource")
-        final ServerConnector connector = new ServerConnector(server,
-                factories.toArray(new ConnectionFactory[factories.size()]));
+        final QueuedThreadPool reserved = createReservedThreadPool(name, config);
+        // A reserved pool only has room for one acceptor and one selector, -1 lets Jetty size them from the cores
+        final int acceptorsAndSelectors = reserved == null ? -1 : 1;
+        final ConnectionFactory[] connectionFactories = factories.toArray(new ConnectionFactory[factories.size()]);
+        // CoDel needs to know when a connection became ready, to see how long its request waited for a thread
+        final ServerConnector connector = coDelHandler.isPresent()
+                ? new QueueDelayServerConnector(server, reserved, null, bufferPool, acceptorsAndSelectors, acceptorsAndSelectors, connectionFactories)
+                : new ServerConnector(server, reserved, null, bufferPool, acceptorsAndSelectors, acceptorsAndSelectors, connectionFactories);
         connector.setName(name);
         if (BOOT_CONNECTOR_NAME.equals(name) && bootConnector != null) {
             connector.setHost(bootConnector.getHost());
@@ -344,6 +412,68 @@ public abstract class EmbeddedJettyBase {
         return new ServerConnectorInfo(name, connector, config);
     }
 
+    /**
+     * @return a pool of the connector's own, or null to share the server's
+     */
+    private QueuedThreadPool createReservedThreadPool(String name, ServerConnectorConfig config) {
+        int threads = config.getReservedThreads();
+        if (threads <= 0 && config.isManagement()) {
+            threads = ManagementConnectors.DEFAULT_RESERVED_THREADS;
+        }
+        if (threads <= 0) {
+            return null;
+        }
+        // Plus the acceptor and the selector, which hold a thread each
+        final QueuedThreadPool pool = new QueuedThreadPool(threads + 2, threads + 2);
+        pool.setName(name + "-qtp");
+        // No reserved thread executor, its threads would come out of the small budget
+        pool.setReservedThreads(0);
+        LOG.info("Connector '{}' runs on {} reserved threads{}", name, threads, config.isManagement() ? " (management)" : "");
+        return pool;
+    }
+
+    private SslContextFactory.Server createSslContextFactory(String name, ServerConnectorConfig config) {
+        final SslContextFactory.Server ssl = new SslContextFactory.Server();
+        ssl.setKeyStorePath(config.getKeystore());
+        ssl.setKeyStorePassword(config.getKeystorePassword());
+        final String provider = SslProviders.resolve(name, config.getSslProvider());
+        if (provider != null) {
+            ssl.setProvider(provider);
+        }
+        if (config.getSslSessionCacheSize() > 0) {
+            ssl.setSslSessionCacheSize(config.getSslSessionCacheSize());
+        }
+        if (config.getSslSessionTimeout() > 0) {
+            ssl.setSslSessionTimeout(config.getSslSessionTimeout());
+        }
+        return ssl;
+    }
+
+    private AbstractHTTP2ServerConnectionFactory createHttp2ConnectionFactory(HttpConfiguration httpConfig, ServerConnectorConfig config, boolean secure) {
+        final HttpConfiguration h2Config = new HttpConfiguration(httpConfig);
+        // The HPACK decoder bounds the header list by the request header size
+        if (config.getHttp2MaxHeaderListSize() > 0) {
+            h2Config.setRequestHeaderSize(config.getHttp2MaxHeaderListSize());
+        }
+
+        final AbstractHTTP2ServerConnectionFactory h2 = secure
+                ? new HTTP2ServerConnectionFactory(h2Config)
+                : new HTTP2CServerConnectionFactory(h2Config);
+        if (config.getHttp2MaxConcurrentStreams() > 0) {
+            h2.setMaxConcurrentStreams(config.getHttp2MaxConcurrentStreams());
+        }
+        if (config.getHttp2InitialStreamRecvWindow() > 0) {
+            h2.setInitialStreamRecvWindow(config.getHttp2InitialStreamRecvWindow());
+        }
+        if (config.getHttp2InitialSessionRecvWindow() > 0) {
+            h2.setInitialSessionRecvWindow(config.getHttp2InitialSessionRecvWindow());
+        }
+        LOG.debug("Configured {} with maxConcurrentStreams={}, initialStreamRecvWindow={}, initialSessionRecvWindow={}, maxHeaderListSize={}",
+                h2.getProtocol(), h2.getMaxConcurrentStreams(), h2.getInitialStreamRecvWindow(),
+                h2.getInitialSessionRecvWindow(), h2Config.getRequestHeaderSize());
+        return h2;
+    }
+
     private int selectPort(ServerConnectorConfig connectorConfig) {
         int configuredPort = connectorConfig.getPort();
         if (configuredPort < 0) {
@@ -352,6 +482,16 @@ public abstract class EmbeddedJettyBase {
         return configuredPort;
     }
 
+    @VisibleForTesting
+    static ThreadMode parseThreadMode(String threadMode) {
+        try {
+            return ThreadMode.valueOf(threadMode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid 'ot.httpserver.thread-mode' value '" + threadMode
+                    + "', expected one of " + Arrays.toString(ThreadMode.values()).toLowerCase(Locale.ROOT), e);
+        }
+    }
+
     private void sizeThreadPool(Server server) {
         Verify.verify(minThreads == null, "'ot.httpserver.min-threads' has been removed on the " +
                 "theory that it is always preferable to eagerly initialize worker threads " +
@@ -362,6 +502,20 @@ public abstract class EmbeddedJettyBase {
         qtp.setMinThreads(maxThreads);
         qtp.setMaxThreads(maxThreads);
 
+        final ThreadMode requested = parseThreadMode(threadMode);
+        if (requested == ThreadMode.VIRTUAL) {
+            if (VirtualThreads.areSupported()) {
+                // The platform pool still runs acceptors and selectors, requests are handled on virtual threads
+                qtp.setUseVirtualThreads(true);
+                actualThreadMode = ThreadMode.VIRTUAL;
+            } else {
+                LOG.warn("'ot.httpserver.thread-mode=virtual' requested but JVM {} does not support virtual threads, using platform threads",
+                        Runtime.version());
+                actualThreadMode = ThreadMode.PLATFORM;
+            }
+        } else {
+            actualThreadMode = ThreadMode.PLATFORM;
+        }
     }
 
     @EventListener
@@ -374,7 +528,7 @@ public abstract class EmbeddedJettyBase {
             httpActualPort = port;
         }
 
-        LOG.info("WebServer initialized; pool={}", getThreadPool());
+        LOG.info("WebServer initialized; threadMode={}, pool={}", actualThreadMode, getThreadPool());
         if (LOG.isTraceEnabled()) {
             final StringBuilder dump = new StringBuilder();
             getServer().dump(dump, "  ");
@@ -395,6 +549,7 @@ public abstract class EmbeddedJettyBase {
                 LOG.info("Application config requesting sleep for {} ms before Jetty shutdown", sleepDurationMillisBeforeShutdown);
                 sleepBeforeJettyShutdown(sleepDurationMillisBeforeShutdown);
             }
+            drainHandler.ifPresent(DrainHandler::drain);
             container.stop();
             LOG.info("Jetty is stopped.");
         } else {
@@ -432,6 +587,11 @@ public abstract class EmbeddedJettyBase {
             public int getPoolSize() {
                 return maxThreads;
             }
+
+            @Override
+            public ThreadMode getThreadMode() {
+                return actualThreadMode;
+            }
         };
     }
 
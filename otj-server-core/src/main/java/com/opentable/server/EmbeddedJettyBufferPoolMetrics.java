@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.function.Consumer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exports the state of every connector that has its own {@link ConnectorByteBufferPool}: totals always, and each
+ * bucket only when asked for, since there can be dozens of them per connector.
+ */
+@Configuration
+public class EmbeddedJettyBufferPoolMetrics {
+
+    static final String METRIC_PREFIX = "http-server.buffer-pool.";
+
+    /** ot.server.buffer-pool.per-bucket-metrics - also export pooled buffers and misses of each bucket */
+    @Value("${ot.server.buffer-pool.per-bucket-metrics:false}")
+    private boolean perBucket;
+
+    @Bean
+    public Consumer<Server> bufferPoolMetricsCustomizer(MetricRegistry metrics) {
+        return server -> {
+            for (Connector connector : server.getConnectors()) {
+                if (connector.getByteBufferPool() instanceof ConnectorByteBufferPool) {
+                    register(metrics, METRIC_PREFIX + connector.getName() + '.',
+                            (ConnectorByteBufferPool) connector.getByteBufferPool());
+                }
+            }
+        };
+    }
+
+    private void register(MetricRegistry metrics, String prefix, ConnectorByteBufferPool pool) {
+        metrics.register(prefix + "heap.memory", (Gauge<Long>) pool::getHeapMemory);
+        metrics.register(prefix + "direct.memory", (Gauge<Long>) pool::getDirectMemory);
+        final int[] capacities = pool.getBucketCapacities();
+        for (boolean direct : new boolean[] {false, true}) {
+            final String kind = prefix + (direct ? "direct." : "heap.");
+            metrics.register(kind + "pooled", (Gauge<Integer>) () -> {
+                int pooled = 0;
+                for (int i = 0; i < capacities.length; i++) {
+                    pooled += pool.getPooled(i, direct);
+                }
+                return pooled;
+            });
+            metrics.register(kind + "misses", (Gauge<Long>) () -> {
+                long misses = 0;
+                for (int i = 0; i <= capacities.length; i++) {
+                    misses += pool.getMisses(i, direct);
+                }
+                return misses;
+            });
+            if (!perBucket) {
+                continue;
+            }
+            for (int i = 0; i < capacities.length; i++) {
+                final int index = i;
+                metrics.register(kind + capacities[i] + ".pooled", (Gauge<Integer>) () -> pool.getPooled(index, direct));
+                metrics.register(kind + capacities[i] + ".misses", (Gauge<Long>) () -> pool.getMisses(index, direct));
+            }
+            metrics.register(kind + "oversize.misses", (Gauge<Long>) () -> pool.getMisses(capacities.length, direct));
+        }
+    }
+}
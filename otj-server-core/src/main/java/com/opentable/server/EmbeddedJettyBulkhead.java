@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+import com.opentable.spring.SpecializedConfigFactory;
+
+/**
+ * Per route and per connector concurrency partitions, see {@link BulkheadHandler}.
+ */
+@Configuration
+@Conditional(EmbeddedJettyBulkhead.InstallEmbeddedJettyBulkhead.class)
+public class EmbeddedJettyBulkhead {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJettyBulkhead.class);
+    static final String METRIC_PREFIX = "http-server.bulkhead.";
+
+    /**
+     * partitions - names of the partitions, each configured under ot.server.bulkhead.partition.(name);
+     * requests matching none of them are not limited
+     */
+    @Value("${ot.server.bulkhead.partitions:}")
+    private List<String> partitions;
+
+    /**
+     * retryAfter - value of the Retry-After header sent with rejections, rounded to whole seconds
+     */
+    @Value("${ot.server.bulkhead.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    public static class InstallEmbeddedJettyBulkhead implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.bulkhead.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public BulkheadHandler bulkheadHandler(ConfigurableEnvironment environment, Map<String, ServerConnectorConfig> activeConnectors,
+                                           MetricRegistry metrics) {
+        AsyncLimitHandler.checkExclusive(environment, "ot.server.bulkhead.enabled");
+        final SpecializedConfigFactory<BulkheadConfig> configs =
+                SpecializedConfigFactory.create(environment, BulkheadConfig.class, "ot.server.bulkhead.partition.${name}");
+        final Map<String, BulkheadConfig> configured = new LinkedHashMap<>();
+        partitions.forEach(name -> configured.put(name, configs.getConfig(name)));
+        if (configured.isEmpty()) {
+            LOG.warn("Bulkheads enabled without any ot.server.bulkhead.partitions, no request is limited");
+        }
+
+        final BulkheadHandler handler = new BulkheadHandler(configured, retryAfter, ManagementConnectors.names(activeConnectors));
+        handler.getPartitions().forEach((name, partition) -> {
+            final String prefix = METRIC_PREFIX + name + ".";
+            metrics.register(prefix + "max-concurrent", (Gauge<Integer>) partition::getMaxConcurrent);
+            metrics.register(prefix + "active", (Gauge<Integer>) partition::getActive);
+            metrics.register(prefix + "utilization", (Gauge<Double>) partition::getUtilization);
+            metrics.register(prefix + "queued", (Gauge<Integer>) partition::getQueued);
+            metrics.register(prefix + "rejected", partition.getRejectedMeter());
+            metrics.register(prefix + "timed-out", partition.getTimedOutMeter());
+        });
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.LIMITER)
+    public Function<Handler, Handler> bulkheadCustomizer(BulkheadHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
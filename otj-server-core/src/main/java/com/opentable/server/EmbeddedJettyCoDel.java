@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+/**
+ * CoDel load shedding on the worker pool's queue delay, see {@link CoDelHandler}. Independent of the low resource
+ * monitor itself, but when both are enabled the monitor also treats a standing queue as low resources.
+ */
+@Configuration
+@Conditional(EmbeddedJettyCoDel.InstallEmbeddedJettyCoDel.class)
+public class EmbeddedJettyCoDel {
+
+    static final String METRIC_PREFIX = "http-server.low-resource-monitor.codel.";
+
+    /**
+     * target - acceptable queue delay; a minimum above it for a whole interval means the server is overloaded
+     */
+    @Value("${ot.server.low-resource-monitor.codel.target:PT0.005S}")
+    private Duration target;
+
+    /**
+     * interval - how long the minimum queue delay must stay above target; also the most any request may wait
+     * when not overloaded
+     */
+    @Value("${ot.server.low-resource-monitor.codel.interval:PT0.1S}")
+    private Duration interval;
+
+    /**
+     * retryAfter - value of the Retry-After header sent with rejections, rounded to whole seconds
+     */
+    @Value("${ot.server.low-resource-monitor.codel.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    public static class InstallEmbeddedJettyCoDel implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.low-resource-monitor.codel.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public CoDelHandler coDelHandler(Map<String, ServerConnectorConfig> activeConnectors, MetricRegistry metrics) {
+        final CoDelHandler handler = new CoDelHandler(target, interval, retryAfter, ManagementConnectors.names(activeConnectors));
+        metrics.register(METRIC_PREFIX + "overloaded", (Gauge<Boolean>) handler::isOverloaded);
+        metrics.register(METRIC_PREFIX + "overloads", handler.getOverloadsMeter());
+        metrics.register(METRIC_PREFIX + "shed", handler.getShedMeter());
+        metrics.register(METRIC_PREFIX + "min-delay-us", (Gauge<Long>) handler::getLastMinMicros);
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.CODEL)
+    public Function<Handler, Handler> coDelCustomizer(CoDelHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
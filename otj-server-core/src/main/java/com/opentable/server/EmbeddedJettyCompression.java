@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+import org.eclipse.jetty.server.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+@Configuration
+@Conditional(EmbeddedJettyCompression.InstallEmbeddedJettyCompression.class)
+public class EmbeddedJettyCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJettyCompression.class);
+    static final String METRIC_PREFIX = "http-server.compression.";
+
+    /**
+     * minSize - responses smaller than this many bytes are sent as they are
+     */
+    @Value("${ot.server.compression.min-size:1024}")
+    private int minSize;
+
+    /**
+     * level - deflate level 1 (fastest) to 9 (smallest), -1 for the zlib default
+     */
+    @Value("${ot.server.compression.level:-1}")
+    private int level;
+
+    /**
+     * mimeTypes - only compress these types; empty keeps Jetty's defaults (everything but already compressed formats)
+     */
+    @Value("${ot.server.compression.mime-types:}")
+    private List<String> mimeTypes;
+
+    /**
+     * excludedMimeTypes - never compress these types
+     */
+    @Value("${ot.server.compression.excluded-mime-types:}")
+    private List<String> excludedMimeTypes;
+
+    /**
+     * connectors - connector names to compress on; empty for all
+     */
+    @Value("${ot.server.compression.connectors:}")
+    private List<String> connectors;
+
+    /**
+     * Deflaters are pooled per worker thread.
+     */
+    @Value("${ot.httpserver.max-threads:32}")
+    private int maxThreads;
+
+    public static class InstallEmbeddedJettyCompression implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.compression.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public CompressionHandler compressionHandler(MetricRegistry metrics) {
+        final CompressionHandler handler = new CompressionHandler(ImmutableSet.copyOf(connectors), level, maxThreads);
+        handler.setMinGzipSize(minSize);
+        if (!mimeTypes.isEmpty()) {
+            handler.setIncludedMimeTypes(mimeTypes.toArray(new String[0]));
+        }
+        if (!excludedMimeTypes.isEmpty()) {
+            handler.addExcludedMimeTypes(excludedMimeTypes.toArray(new String[0]));
+        }
+        metrics.register(METRIC_PREFIX + "bytes-in", handler.getBytesInMeter());
+        metrics.register(METRIC_PREFIX + "bytes-out", handler.getBytesOutMeter());
+        metrics.register(METRIC_PREFIX + "bytes-saved", (Gauge<Long>) handler::getBytesSaved);
+        metrics.register(METRIC_PREFIX + "deflate-nanos", handler.getDeflateNanosMeter());
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.COMPRESSION)
+    public Function<Handler, Handler> compressionCustomizer(CompressionHandler handler) {
+        return next -> {
+            LOG.debug("Installing response compression {}", handler);
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
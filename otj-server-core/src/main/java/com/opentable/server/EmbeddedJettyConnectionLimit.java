@@ -14,6 +14,8 @@
 package com.opentable.server;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.eclipse.jetty.server.ConnectionLimit;
@@ -50,15 +52,21 @@ public class EmbeddedJettyConnectionLimit {
      */
     private final Integer connectionLimit;
     private final Duration idleTimeout;
+    private final Set<String> managementConnectors;
 
     public EmbeddedJettyConnectionLimit(@Value("${ot.server.connection-limit:500}") Integer connectionLimit,
-                                        @Value("${ot.server.connection-limit.timeout:#{null}}") Duration idleTimeout) {
+                                        @Value("${ot.server.connection-limit.timeout:#{null}}") Duration idleTimeout,
+                                        Map<String, ServerConnectorConfig> activeConnectors) {
         this.connectionLimit = connectionLimit;
         this.idleTimeout = idleTimeout;
+        this.managementConnectors = ManagementConnectors.names(activeConnectors);
     }
     ConnectionLimit connectionLimit(int limit, Server server) {
         LOG.debug("Installing ConnectionLimit {}, {}", limit, idleTimeout);
-        final ConnectionLimit connectionLimit =  new ConnectionLimit(limit, server);
+        // Management connectors keep accepting
+        final ConnectionLimit connectionLimit = managementConnectors.isEmpty()
+                ? new ConnectionLimit(limit, server)
+                : new ConnectionLimit(limit, ManagementConnectors.others(server, managementConnectors));
         if ((idleTimeout != null) && (!idleTimeout.isZero()) && (!idleTimeout.isNegative())) {
             connectionLimit.setIdleTimeout(idleTimeout.toMillis());
         }
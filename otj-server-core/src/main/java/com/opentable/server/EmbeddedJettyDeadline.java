@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+/**
+ * Deadline aware admission, see {@link DeadlineHandler} and {@link RequestDeadline}.
+ */
+@Configuration
+@Conditional(EmbeddedJettyDeadline.InstallEmbeddedJettyDeadline.class)
+public class EmbeddedJettyDeadline {
+
+    static final String METRIC_PREFIX = "http-server.deadline.";
+
+    /**
+     * header - request header carrying the deadline
+     */
+    @Value("${ot.server.deadline.header:X-Request-Deadline}")
+    private String header;
+
+    /**
+     * absolute - true if the header holds epoch milliseconds, false if it holds the milliseconds the caller waits,
+     * counted from when the request was received
+     */
+    @Value("${ot.server.deadline.absolute:false}")
+    private boolean absolute;
+
+    public static class InstallEmbeddedJettyDeadline implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.deadline.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public DeadlineHandler deadlineHandler(Map<String, ServerConnectorConfig> activeConnectors, MetricRegistry metrics) {
+        final Map<String, Long> connectorDefaults = new HashMap<>();
+        activeConnectors.forEach((name, config) -> {
+            if (config.getDefaultDeadlineMillis() > 0) {
+                connectorDefaults.put(name, config.getDefaultDeadlineMillis());
+            }
+        });
+        final DeadlineHandler handler = new DeadlineHandler(header, absolute, connectorDefaults);
+        metrics.register(METRIC_PREFIX + "with-deadline", handler.getWithDeadlineMeter());
+        metrics.register(METRIC_PREFIX + "dropped", handler.getDroppedMeter());
+        metrics.register(METRIC_PREFIX + "malformed", handler.getMalformedMeter());
+        return handler;
+    }
+
+    /**
+     * First customizer, so the handler ends up innermost, after anything that holds requests back.
+     */
+    @Bean
+    @Order(HandlerOrder.DEADLINE)
+    public Function<Handler, Handler> deadlineCustomizer(DeadlineHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
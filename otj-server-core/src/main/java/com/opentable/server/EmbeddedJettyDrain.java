@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+/**
+ * Drains in-flight requests on shutdown, see {@link DrainHandler}. Runs after the optional
+ * {@code ot.httpserver.sleep-before-shutdown} pause and before Jetty is stopped.
+ */
+@Configuration
+@Conditional(EmbeddedJettyDrain.InstallEmbeddedJettyDrain.class)
+public class EmbeddedJettyDrain {
+
+    static final String METRIC_PREFIX = "http-server.drain.";
+
+    /**
+     * timeout - longest wait for in-flight requests; those still running afterwards are cut off
+     */
+    @Value("${ot.httpserver.drain.timeout:PT30S}")
+    private Duration timeout;
+
+    /**
+     * pollInterval - how often active requests are checked
+     */
+    @Value("${ot.httpserver.drain.poll-interval:PT0.05S}")
+    private Duration pollInterval;
+
+    public static class InstallEmbeddedJettyDrain implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.httpserver.drain.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public DrainHandler drainHandler(MetricRegistry metrics) {
+        final DrainHandler handler = new DrainHandler(timeout, pollInterval);
+        metrics.register(METRIC_PREFIX + "duration-ms", (Gauge<Long>) handler::getDrainMillis);
+        metrics.register(METRIC_PREFIX + "cut-off", handler.getCutOffCounter());
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.DRAIN)
+    public Function<Handler, Handler> drainCustomizer(DrainHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+/**
+ * Watches the keystore of every TLS connector and reloads it in place when it changes, see {@link KeyStoreReloader}.
+ */
+@Configuration
+@Conditional(EmbeddedJettyKeyStoreReload.InstallEmbeddedJettyKeyStoreReload.class)
+public class EmbeddedJettyKeyStoreReload {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJettyKeyStoreReload.class);
+    static final String METRIC_PREFIX = "http-server.keystore-reload.";
+
+    /**
+     * interval - how often keystore files are checked; a change is acted on once the file stopped changing
+     */
+    @Value("${ot.server.keystore-reload.interval:PT1M}")
+    private Duration interval;
+
+    public static class InstallEmbeddedJettyKeyStoreReload implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.keystore-reload.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public Consumer<Server> keyStoreReloadCustomizer(Map<String, ServerConnectorConfig> activeConnectors, MetricRegistry metrics) {
+        return server -> {
+            for (Connector connector : server.getConnectors()) {
+                final SslConnectionFactory ssl = connector.getConnectionFactory(SslConnectionFactory.class);
+                final ServerConnectorConfig config = activeConnectors.get(connector.getName());
+                if (ssl == null || config == null) {
+                    continue;
+                }
+                final KeyStoreReloader reloader;
+                try {
+                    reloader = new KeyStoreReloader(connector.getName(), ssl.getSslContextFactory(), config.getKeystorePassword());
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("Not watching the keystore of connector '{}', it is not a file: {}", connector.getName(), e.getMessage());
+                    continue;
+                }
+                reloader.setScanInterval((int) Math.max(1, interval.getSeconds()));
+                server.addBean(reloader);
+                LOG.info("Watching keystore {} of connector '{}' every {}", ssl.getSslContextFactory().getKeyStorePath(),
+                        connector.getName(), interval);
+
+                final String prefix = METRIC_PREFIX + connector.getName() + '.';
+                metrics.register(prefix + "successes", reloader.getSuccessesCounter());
+                metrics.register(prefix + "failures", reloader.getFailuresCounter());
+                metrics.register(prefix + "last-success", (Gauge<Long>) reloader::getLastSuccess);
+                metrics.register(prefix + "not-after", (Gauge<Long>) reloader::getNotAfter);
+            }
+        };
+    }
+}
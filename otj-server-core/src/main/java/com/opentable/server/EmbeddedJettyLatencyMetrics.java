@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+@Configuration
+@Conditional(EmbeddedJettyLatencyMetrics.InstallEmbeddedJettyLatencyMetrics.class)
+public class EmbeddedJettyLatencyMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedJettyLatencyMetrics.class);
+    static final String METRIC_PREFIX = "http-server.latency.";
+
+    /**
+     * window - each reported snapshot covers roughly this long
+     */
+    @Value("${ot.server.latency.window:PT1M}")
+    private Duration window;
+
+    /**
+     * maxRoutes - distinct route templates tracked; any beyond are recorded as "other"
+     */
+    @Value("${ot.server.latency.max-routes:200}")
+    private int maxRoutes;
+
+    public static class InstallEmbeddedJettyLatencyMetrics implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.latency.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public LatencyHandler latencyHandler(MetricRegistry metrics) {
+        return new LatencyHandler(metrics, METRIC_PREFIX, window, maxRoutes);
+    }
+
+    @Bean
+    public Consumer<Server> latencyCustomizer(LatencyHandler handler) {
+        return server -> {
+            LOG.debug("Installing latency recording {}", handler);
+            handler.setHandler(server.getHandler());
+            server.setHandler(handler);
+        };
+    }
+}
@@ -13,6 +13,10 @@
  */
 package com.opentable.server;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.eclipse.jetty.server.LowResourceMonitor;
@@ -75,8 +79,14 @@ public class EmbeddedJettyLowResourceMonitor {
         }
     }
 
-    LowResourceMonitor lowResourceMonitor(Server server) {
+    LowResourceMonitor lowResourceMonitor(Server server, Set<String> managementConnectors, Optional<CoDelHandler> coDel) {
         LowResourceMonitor lowResourcesMonitor = new LowResourceMonitor(server);
+        // A standing queue, see ot.server.low-resource-monitor.codel
+        coDel.ifPresent(lowResourcesMonitor::addLowResourceCheck);
+        if (!managementConnectors.isEmpty()) {
+            // Management connectors keep accepting and their idle timeouts are left alone
+            lowResourcesMonitor.setMonitoredConnectors(Arrays.asList(ManagementConnectors.others(server, managementConnectors)));
+        }
         if (periodMS != null) {
             lowResourcesMonitor.setPeriod(periodMS);
         }
@@ -97,8 +107,9 @@ public class EmbeddedJettyLowResourceMonitor {
     }
 
     @Bean
-    public Consumer<Server> lowResourcesCustomizer() {
-        return  s -> s.addBean(lowResourceMonitor(s));
+    public Consumer<Server> lowResourcesCustomizer(Map<String, ServerConnectorConfig> activeConnectors, Optional<CoDelHandler> coDel) {
+        final Set<String> managementConnectors = ManagementConnectors.names(activeConnectors);
+        return  s -> s.addBean(lowResourceMonitor(s, managementConnectors, coDel));
     }
 
 }
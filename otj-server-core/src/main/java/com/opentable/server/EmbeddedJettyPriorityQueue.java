@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+import com.opentable.spring.SpecializedConfigFactory;
+
+/**
+ * Priority ordering of requests waiting for a worker, see {@link PriorityQueueHandler}.
+ */
+@Configuration
+@Conditional(EmbeddedJettyPriorityQueue.InstallEmbeddedJettyPriorityQueue.class)
+public class EmbeddedJettyPriorityQueue {
+
+    static final String METRIC_PREFIX = "http-server.priority-queue.";
+
+    /**
+     * classes - names of the priority classes, each configured under ot.server.priority-queue.class.(name);
+     * requests matching none of them belong to the default class, configured under ot.server.priority-queue.class.default
+     */
+    @Value("${ot.server.priority-queue.classes:}")
+    private List<String> classes;
+
+    /**
+     * maxConcurrent - requests running at once; 0 uses three quarters of ot.httpserver.max-threads, which leaves
+     * threads for acceptors and selectors
+     */
+    @Value("${ot.server.priority-queue.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${ot.httpserver.max-threads:32}")
+    private int maxThreads;
+
+    /**
+     * maxQueued - requests waiting at once, over all classes; beyond that requests are shed
+     */
+    @Value("${ot.server.priority-queue.max-queued:1000}")
+    private int maxQueued;
+
+    /**
+     * aging - waiting this long raises a request's priority by one
+     */
+    @Value("${ot.server.priority-queue.aging:PT0.1S}")
+    private Duration aging;
+
+    /**
+     * retryAfter - value of the Retry-After header sent with rejections, rounded to whole seconds
+     */
+    @Value("${ot.server.priority-queue.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    public static class InstallEmbeddedJettyPriorityQueue implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.priority-queue.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public PriorityQueueHandler priorityQueueHandler(ConfigurableEnvironment environment,
+                                                     Map<String, ServerConnectorConfig> activeConnectors,
+                                                     MetricRegistry metrics) {
+        AsyncLimitHandler.checkExclusive(environment, "ot.server.priority-queue.enabled");
+        final SpecializedConfigFactory<PriorityClassConfig> configs =
+                SpecializedConfigFactory.create(environment, PriorityClassConfig.class, "ot.server.priority-queue.class.${name}");
+        final Map<String, PriorityClassConfig> configured = new LinkedHashMap<>();
+        classes.forEach(name -> configured.put(name, configs.getConfig(name)));
+
+        final PriorityQueueHandler handler = new PriorityQueueHandler(configured, configs.getConfig("default"),
+                maxConcurrent > 0 ? maxConcurrent : Math.max(1, maxThreads * 3 / 4), maxQueued, aging, retryAfter,
+                ManagementConnectors.names(activeConnectors));
+        metrics.register(METRIC_PREFIX + "active", (Gauge<Integer>) handler::getActive);
+        metrics.register(METRIC_PREFIX + "queued", (Gauge<Integer>) handler::getQueued);
+        handler.getClasses().forEach(priorityClass -> {
+            final String prefix = METRIC_PREFIX + priorityClass.getName() + ".";
+            metrics.register(prefix + "queue-wait", priorityClass.getQueueWait());
+            metrics.register(prefix + "queued", (Gauge<Integer>) priorityClass::getQueued);
+            metrics.register(prefix + "shed", priorityClass.getShedMeter());
+        });
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.LIMITER)
+    public Function<Handler, Handler> priorityQueueCustomizer(PriorityQueueHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.function.Consumer;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exports the TLS handshake counts and latency of every {@code https} and {@code h2} connector.
+ */
+@Configuration
+public class EmbeddedJettyTlsMetrics {
+
+    static final String METRIC_PREFIX = "http-server.tls.";
+
+    @Bean
+    public Consumer<Server> tlsMetricsCustomizer(MetricRegistry metrics) {
+        return server -> {
+            for (Connector connector : server.getConnectors()) {
+                final InstrumentedSslConnectionFactory ssl = connector.getConnectionFactory(InstrumentedSslConnectionFactory.class);
+                if (ssl != null) {
+                    final String prefix = METRIC_PREFIX + connector.getName() + '.';
+                    metrics.register(prefix + "handshake", ssl.getHandshakes());
+                    metrics.register(prefix + "full", ssl.getFullHandshakesMeter());
+                    metrics.register(prefix + "resumed", ssl.getResumedHandshakesMeter());
+                    metrics.register(prefix + "failed", ssl.getFailedHandshakesMeter());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Handler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.lang.NonNull;
+
+import com.opentable.spring.SpecializedConfigFactory;
+
+/**
+ * Warms the server up once the connectors are bound and before the application is ready, see {@link WarmupHandler}.
+ * The listener blocks the Spring lifecycle, so {@code ApplicationReadyEvent} and the readiness state follow the warm-up.
+ */
+@Configuration
+@Conditional(EmbeddedJettyWarmup.InstallEmbeddedJettyWarmup.class)
+public class EmbeddedJettyWarmup {
+
+    static final String METRIC_PREFIX = "http-server.warmup.";
+    static final String NOT_FOUND = "not-found";
+
+    /**
+     * requests - names of the requests to replay, each configured under ot.server.warmup.request.(name);
+     * empty replays a single request for a missing path, which exercises the filter chain and error handler
+     */
+    @Value("${ot.server.warmup.requests:}")
+    private List<String> requests;
+
+    /**
+     * window - requests per measurement window; the median of each window is compared to the previous one
+     */
+    @Value("${ot.server.warmup.window:20}")
+    private int window;
+
+    /**
+     * tolerance - relative change between window medians below which a request counts as converged
+     */
+    @Value("${ot.server.warmup.tolerance:0.1}")
+    private double tolerance;
+
+    /**
+     * maxIterations - most replays of a single request
+     */
+    @Value("${ot.server.warmup.max-iterations:1000}")
+    private int maxIterations;
+
+    /**
+     * timeout - longest the whole warm-up may take
+     */
+    @Value("${ot.server.warmup.timeout:PT30S}")
+    private Duration timeout;
+
+    /**
+     * holdTraffic - answer requests on the real connectors, except management ones, with 503 until warmed up
+     */
+    @Value("${ot.server.warmup.hold-traffic:true}")
+    private boolean holdTraffic;
+
+    public static class InstallEmbeddedJettyWarmup implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, @NonNull AnnotatedTypeMetadata metadata) {
+            final String value = context.getEnvironment().
+                    getProperty("ot.server.warmup.enabled", "false");
+            return Boolean.parseBoolean(value);
+        }
+    }
+
+    @Bean
+    public WarmupHandler warmupHandler(ConfigurableEnvironment environment, Map<String, ServerConnectorConfig> activeConnectors,
+                                       MetricRegistry metrics) {
+        final SpecializedConfigFactory<WarmupRequestConfig> configs =
+                SpecializedConfigFactory.create(environment, WarmupRequestConfig.class, "ot.server.warmup.request.${name}");
+        final Map<String, WarmupRequestConfig> configured = new LinkedHashMap<>();
+        requests.forEach(name -> configured.put(name, configs.getConfig(name)));
+        if (configured.isEmpty()) {
+            configured.put(NOT_FOUND, new WarmupRequestConfig() {
+                @Override
+                public String getPath() {
+                    return "/__warmup/" + NOT_FOUND;
+                }
+            });
+        }
+
+        final WarmupHandler handler = new WarmupHandler(configured, window, tolerance, maxIterations, timeout, holdTraffic,
+                ManagementConnectors.names(activeConnectors));
+        metrics.register(METRIC_PREFIX + "duration-ms", (Gauge<Long>) handler::getDurationMillis);
+        configured.keySet().forEach(name -> {
+            metrics.register(METRIC_PREFIX + name + ".converged-us", (Gauge<Long>) () -> {
+                final WarmupHandler.Result result = handler.getResult(name);
+                return result == null ? -1 : TimeUnit.NANOSECONDS.toMicros(result.getMedianNanos());
+            });
+            metrics.register(METRIC_PREFIX + name + ".iterations", (Gauge<Integer>) () -> {
+                final WarmupHandler.Result result = handler.getResult(name);
+                return result == null ? 0 : result.getIterations();
+            });
+        });
+        return handler;
+    }
+
+    @Bean
+    @Order(HandlerOrder.WARMUP)
+    public Function<Handler, Handler> warmupCustomizer(WarmupHandler handler) {
+        return next -> {
+            handler.setHandler(next);
+            return handler;
+        };
+    }
+
+    @EventListener
+    public void warmUp(WebServerInitializedEvent event) {
+        event.getApplicationContext().getBean(WarmupHandler.class).warmUp();
+    }
+}
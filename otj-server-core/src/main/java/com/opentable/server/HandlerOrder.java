@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import org.springframework.core.Ordered;
+
+/**
+ * {@link org.springframework.core.annotation.Order} values of the built-in {@code Function<Handler, Handler>}
+ * customizers. Customizers are applied in order, each wrapping the handler built so far, so the lowest value ends up
+ * innermost. From the outside in:
+ *
+ * <ol>
+ * <li>{@link #DRAIN} turns requests away once shutdown has started</li>
+ * <li>{@link #WARMUP} turns requests away or holds them until warm-up is done</li>
+ * <li>{@link #CODEL} sheds requests that waited too long for a worker; outside the limiters so it samples every
+ * request on arrival, not only those that got a slot</li>
+ * <li>{@link #LIMITER} the bulkhead or priority queue parks requests beyond their concurrency</li>
+ * <li>{@link #COMPRESSION} compresses responses</li>
+ * <li>{@link #DEADLINE} drops requests whose deadline passed, including while they were parked</li>
+ * </ol>
+ *
+ * Unordered application customizers come last and so wrap all of these. Pick a value between two of these to place
+ * one inside the chain. The {@code Consumer<Server>} customizers (latency, admission control, connection limits) wrap
+ * the whole chain.
+ *
+ * @see EmbeddedJettyBase
+ */
+public final class HandlerOrder {
+    public static final int DEADLINE = Ordered.HIGHEST_PRECEDENCE;
+    public static final int COMPRESSION = DEADLINE + 100;
+    public static final int LIMITER = DEADLINE + 200;
+    public static final int CODEL = DEADLINE + 300;
+    public static final int WARMUP = DEADLINE + 400;
+    public static final int DRAIN = DEADLINE + 500;
+
+    private HandlerOrder() {
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+/**
+ * {@link Reservoir} backed by an HdrHistogram {@link Recorder}. Recording is wait free and allocation free, and
+ * the tail is exact to two significant digits rather than sampled away, which is what p99 / p999 need.
+ *
+ * Snapshots cover one window: the recorder is rolled over when a snapshot is asked for at least a window after
+ * the previous roll, and until then the previous window is reported.
+ */
+class HdrHistogramReservoir implements Reservoir {
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final long windowNanos;
+    private Histogram last;
+    private long rolledAt;
+
+    HdrHistogramReservoir(Duration window) {
+        this.windowNanos = window.toNanos();
+        this.last = recorder.getIntervalHistogram();
+        this.rolledAt = System.nanoTime();
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(Math.max(0, value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        final long now = System.nanoTime();
+        if (now - rolledAt >= windowNanos) {
+            // A fresh histogram every roll, so handed out snapshots never change underneath their readers
+            last = recorder.getIntervalHistogram();
+            rolledAt = now;
+        }
+        return new HistogramSnapshot(last);
+    }
+
+    private static final class HistogramSnapshot extends Snapshot {
+        private final Histogram histogram;
+
+        HistogramSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        /**
+         * @return one value per recorded bucket, not one per sample
+         */
+        @Override
+        public long[] getValues() {
+            final LongStream.Builder values = LongStream.builder();
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values.add(histogram.highestEquivalentValue(value.getValueIteratedTo()));
+            }
+            return values.build().toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
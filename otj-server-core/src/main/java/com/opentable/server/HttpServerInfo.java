@@ -25,12 +25,28 @@ public interface HttpServerInfo {
     /** @return the main (almost always 'http') port */
     int getPort();
 
-    /** @return the size of the thread pool */
+    /**
+     * @return the size of the thread pool; with {@link ThreadMode#VIRTUAL} this pool only runs
+     * acceptors and selectors, requests are not bounded by it
+     */
     int getPoolSize();
 
+    /** @return the thread mode requests are actually handled with */
+    default ThreadMode getThreadMode() {
+        return ThreadMode.PLATFORM;
+    }
+
     /** @return information on the currently active server connectors */
     Map<String, ConnectorInfo> getConnectors();
 
+    /** How request handling threads are provided. */
+    enum ThreadMode {
+        /** Requests are handled on the fixed size Jetty worker pool. */
+        PLATFORM,
+        /** Requests are handled on virtual threads. */
+        VIRTUAL,
+    }
+
     /** Expose information for a single server connector. */
     interface ConnectorInfo {
         /** @return the configuration name for this connector */
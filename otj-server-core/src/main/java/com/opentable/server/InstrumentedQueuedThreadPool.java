@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * {@link QueuedThreadPool} that records how long each job waited before a thread picked it up. This covers every job,
+ * not just requests: selector and housekeeping jobs are included, and hand-offs to a reserved thread through
+ * {@link #tryExecute(Runnable)} are recorded with their (near zero) wait.
+ */
+class InstrumentedQueuedThreadPool extends QueuedThreadPool {
+    private final Timer jobWait;
+
+    InstrumentedQueuedThreadPool(Timer jobWait) {
+        this.jobWait = jobWait;
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        super.execute(new TimedJob(job, System.nanoTime()));
+    }
+
+    @Override
+    public boolean tryExecute(Runnable job) {
+        return super.tryExecute(new TimedJob(job, System.nanoTime()));
+    }
+
+    private final class TimedJob implements Runnable, Invocable {
+        private final Runnable job;
+        private final long queuedAt;
+
+        TimedJob(Runnable job, long queuedAt) {
+            this.job = job;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override
+        public void run() {
+            jobWait.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            job.run();
+        }
+
+        @Override
+        public InvocationType getInvocationType() {
+            return Invocable.getInvocationType(job);
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * {@link SslConnectionFactory} that counts full, resumed and failed handshakes and times them from the moment the
+ * connection was accepted, so the client's round trips are included.
+ *
+ * A handshake is considered resumed when its session was created before the connection was accepted, which is the
+ * case for both session id and session ticket resumption.
+ */
+@ManagedObject("TLS handshakes")
+public class InstrumentedSslConnectionFactory extends SslConnectionFactory {
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final Meter full = new Meter();
+    private final Meter resumed = new Meter();
+    private final Meter failed = new Meter();
+    private final Timer handshakes = new Timer(new HdrHistogramReservoir(WINDOW));
+
+    InstrumentedSslConnectionFactory(SslContextFactory.Server factory, String nextProtocol) {
+        super(factory, nextProtocol);
+    }
+
+    @Override
+    protected SslConnection newSslConnection(Connector connector, EndPoint endPoint, SSLEngine engine) {
+        final SslConnection connection = super.newSslConnection(connector, endPoint, engine);
+        connection.addHandshakeListener(new Listener());
+        return connection;
+    }
+
+    @ManagedAttribute("Handshakes that negotiated a new session")
+    public long getFullHandshakes() {
+        return full.getCount();
+    }
+
+    Meter getFullHandshakesMeter() {
+        return full;
+    }
+
+    @ManagedAttribute("Handshakes that resumed a cached session or a session ticket")
+    public long getResumedHandshakes() {
+        return resumed.getCount();
+    }
+
+    Meter getResumedHandshakesMeter() {
+        return resumed;
+    }
+
+    @ManagedAttribute("Handshakes that failed")
+    public long getFailedHandshakes() {
+        return failed.getCount();
+    }
+
+    Meter getFailedHandshakesMeter() {
+        return failed;
+    }
+
+    /**
+     * @return time from accept to completed handshake, successful ones only
+     */
+    Timer getHandshakes() {
+        return handshakes;
+    }
+
+    private final class Listener implements SslHandshakeListener {
+        private final long startNanos = System.nanoTime();
+        private final long startMillis = System.currentTimeMillis();
+
+        @Override
+        public void handshakeSucceeded(Event event) {
+            handshakes.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            final SSLSession session = event.getSSLEngine().getSession();
+            if (session.getCreationTime() < startMillis) {
+                resumed.mark();
+            } else {
+                full.mark();
+            }
+        }
+
+        @Override
+        public void handshakeFailed(Event event, Throwable failure) {
+            failed.mark();
+        }
+    }
+}
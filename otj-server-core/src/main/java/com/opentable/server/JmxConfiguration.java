@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -32,9 +33,14 @@ import com.google.common.base.MoreObjects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
 import org.springframework.stereotype.Component;
 
@@ -54,7 +60,7 @@ import com.opentable.service.K8sInfo;
  * appropriately, consult the {@code TestMBeanServerConfiguration}, in the testing package of this codebase.
  */
 @Configuration
-@Import(JmxmpServer.class)
+@Import({JmxmpServer.class, StartupPhases.class})
 public class JmxConfiguration {
 
     @Bean
@@ -76,6 +82,7 @@ public class JmxConfiguration {
         public static final String JAVA_RMI_SERVER_HOSTNAME = "java.rmi.server.hostname";
         private static final Logger LOG = LoggerFactory.getLogger(JmxmpServer.class);
         static final String WILDCARD_BIND = "0.0.0.0"; // NOPMD
+        private static final String PHASE = "jmx";
 
         @Value("${ot.jmx.port:#{null}}")
         private Integer jmxPort;
@@ -93,18 +100,65 @@ public class JmxConfiguration {
         private final K8sInfo k8sInfo;
         private final AppInfo appInfo;
 
+        private final StartupPhases startupPhases;
+        private final AtomicBoolean deferredStart = new AtomicBoolean();
+        private volatile ApplicationContext context;
+
         private JMXConnectorServer server;
+        private boolean closed;
 
 
         @Inject
-        JmxmpServer(K8sInfo k8sInfo, AppInfo app, MBeanServer mbs) {
+        JmxmpServer(K8sInfo k8sInfo, AppInfo app, MBeanServer mbs, StartupPhases startupPhases) {
             this.mbs = mbs;
             this.k8sInfo = k8sInfo;
             this.appInfo = app;
+            this.startupPhases = startupPhases;
         }
 
         @PostConstruct
         public void start() throws IOException {
+            if (startupPhases.isFastStartup()) {
+                LOG.debug("Fast startup, the JMX connector server starts once the context is refreshed");
+                return;
+            }
+            doStart();
+        }
+
+        /**
+         * In fast startup mode, start in the background once the context (and with it the HTTP connectors) is up.
+         * The application refuses traffic if that fails, as it would have failed to start otherwise.
+         */
+        @EventListener
+        public void contextRefreshed(ContextRefreshedEvent event) {
+            if (startupPhases.isFastStartup() && deferredStart.compareAndSet(false, true)) {
+                context = event.getApplicationContext();
+                startupPhases.run(PHASE, () -> {
+                    try {
+                        doStart();
+                    } catch (IOException | RuntimeException e) {
+                        startupPhases.failed(PHASE, e);
+                        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Spring Boot reports the application ready after the deferred start may already have failed, keep refusing.
+         */
+        @EventListener
+        public void readinessChanged(AvailabilityChangeEvent<ReadinessState> event) {
+            if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && startupPhases.isFailed(PHASE)) {
+                LOG.error("JMX connector server failed to start, refusing traffic");
+                AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+            }
+        }
+
+        private synchronized void doStart() throws IOException {
+            if (closed) {
+                return;
+            }
             // Always need this - effectively it's a noop since old code references PORT1 directly.
             if (jmxPort == null || jmxPort <= 0) {
                 LOG.info("No JMX port set, not exporting. JMX configuration disabled");
@@ -195,7 +249,8 @@ public class JmxConfiguration {
         }
 
         @PreDestroy
-        public void close() throws IOException {
+        public synchronized void close() throws IOException {
+            closed = true;
             if (server != null) {
                 server.stop();
                 server = null;
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+
+import com.codahale.metrics.Counter;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.security.CertificateUtils;
+import org.eclipse.jetty.util.ssl.KeyStoreScanner;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link KeyStoreScanner} that checks a changed keystore before reloading the {@link SslContextFactory} with it: it
+ * must open with the connector's password and hold at least one currently valid private key and certificate.
+ * A keystore that fails the check is ignored and the current one stays in use.
+ *
+ * Reloading only affects new connections; established ones keep the context they were created with.
+ */
+@ManagedObject("Reloads a connector's keystore when the file changes")
+public class KeyStoreReloader extends KeyStoreScanner {
+    private static final Logger LOG = LoggerFactory.getLogger(KeyStoreReloader.class);
+
+    private final String connector;
+    private final SslContextFactory sslContextFactory;
+    private final String password;
+    private final Counter successes = new Counter();
+    private final Counter failures = new Counter();
+    private final AtomicLong lastSuccess = new AtomicLong();
+    private final AtomicLong notAfter = new AtomicLong();
+
+    KeyStoreReloader(String connector, SslContextFactory sslContextFactory, String password) {
+        super(sslContextFactory);
+        this.connector = connector;
+        this.sslContextFactory = sslContextFactory;
+        this.password = password;
+        try {
+            notAfter.set(validate());
+        } catch (Exception e) {
+            // The connector fails on its own when it starts
+            LOG.debug("Initial keystore for connector '{}' does not validate", connector, e);
+        }
+    }
+
+    @ManagedOperation(value = "Validate and reload the keystore", impact = "ACTION")
+    @Override
+    public void reload() {
+        final long validUntil;
+        try {
+            validUntil = validate();
+        } catch (Exception e) {
+            failures.inc();
+            LOG.error("Keystore {} for connector '{}' was rejected, keeping the current one", sslContextFactory.getKeyStorePath(), connector, e);
+            return;
+        }
+        try {
+            sslContextFactory.reload(factory -> { });
+        } catch (Exception e) {
+            failures.inc();
+            LOG.error("Reloading keystore {} for connector '{}' failed", sslContextFactory.getKeyStorePath(), connector, e);
+            return;
+        }
+        successes.inc();
+        lastSuccess.set(System.currentTimeMillis());
+        notAfter.set(validUntil);
+        LOG.info("Reloaded keystore {} for connector '{}'", sslContextFactory.getKeyStorePath(), connector);
+    }
+
+    /**
+     * @return expiry, in epoch millis, of the first valid server certificate
+     */
+    private long validate() throws Exception {
+        final KeyStore keyStore = CertificateUtils.getKeyStore(sslContextFactory.getKeyStoreResource(),
+                sslContextFactory.getKeyStoreType(), sslContextFactory.getKeyStoreProvider(), password);
+        // Fails on a wrong key password
+        KeyManagerFactory.getInstance(sslContextFactory.getKeyManagerFactoryAlgorithm())
+                .init(keyStore, password == null ? null : password.toCharArray());
+
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (!keyStore.isKeyEntry(alias)) {
+                continue;
+            }
+            final Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate instanceof X509Certificate) {
+                try {
+                    ((X509Certificate) certificate).checkValidity();
+                    return ((X509Certificate) certificate).getNotAfter().getTime();
+                } catch (GeneralSecurityException e) {
+                    LOG.warn("Certificate '{}' in {} is not valid: {}", alias, sslContextFactory.getKeyStorePath(), e.getMessage());
+                }
+            }
+        }
+        throw new GeneralSecurityException("No valid private key and certificate in " + sslContextFactory.getKeyStorePath());
+    }
+
+    @ManagedAttribute("Keystores reloaded")
+    public long getSuccesses() {
+        return successes.getCount();
+    }
+
+    Counter getSuccessesCounter() {
+        return successes;
+    }
+
+    @ManagedAttribute("Keystores rejected or failed to reload")
+    public long getFailures() {
+        return failures.getCount();
+    }
+
+    Counter getFailuresCounter() {
+        return failures;
+    }
+
+    @ManagedAttribute("Time of the last reload, epoch millis")
+    public long getLastSuccess() {
+        return lastSuccess.get();
+    }
+
+    @ManagedAttribute("Expiry of the certificate in use, epoch millis")
+    public long getNotAfter() {
+        return notAfter.get();
+    }
+}
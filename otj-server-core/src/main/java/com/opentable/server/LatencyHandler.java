@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * Records how long each request spends in the handler chain, per connector and per route template, into
+ * {@link HdrHistogramReservoir} backed timers. How long pool jobs wait for a worker thread is recorded separately by
+ * {@link InstrumentedQueuedThreadPool}.
+ *
+ * The route is the template Spring MVC matched (e.g. {@code GET /api/users/{id}}), or whatever the application put in
+ * the {@value #ROUTE} request attribute, which takes precedence. JAX-RS and WebFlux templates are not resolved, so
+ * without that attribute their requests are recorded as {@code unmatched}. Once {@code maxRoutes} routes are known,
+ * new ones share {@code other}.
+ */
+@ManagedObject("Request latency per connector and route")
+public class LatencyHandler extends HandlerWrapper {
+    /** Spring MVC's {@code HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE}, not referenced to keep Spring MVC optional. */
+    static final String BEST_MATCHING_PATTERN = "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+    /** Request attribute with the route template, without the method, for handlers other than Spring MVC. */
+    public static final String ROUTE = "com.opentable.server.LatencyHandler.route";
+    static final String UNMATCHED = "unmatched";
+    static final String OTHER = "other";
+    static final String POOL_JOB_WAIT = "pool.job-wait";
+
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final Duration window;
+    private final int maxRoutes;
+    private final ConcurrentMap<String, Timer> connectors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> routes = new ConcurrentHashMap<>();
+
+    LatencyHandler(MetricRegistry metrics, String prefix, Duration window, int maxRoutes) {
+        this.metrics = metrics;
+        this.prefix = prefix;
+        this.window = window;
+        this.maxRoutes = maxRoutes;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (!baseRequest.getHttpChannelState().isInitial()) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Complete(baseRequest, start));
+            } else {
+                record(baseRequest, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void record(Request request, long nanos) {
+        final Connector connector = request.getHttpChannel().getConnector();
+        final String connectorName = connector == null || connector.getName() == null ? "unknown" : connector.getName();
+        connectors.computeIfAbsent(connectorName, name -> timer("connector." + name)).update(nanos, TimeUnit.NANOSECONDS);
+        route(request).update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer route(Request request) {
+        final Object explicit = request.getAttribute(ROUTE);
+        final Object pattern = explicit == null ? request.getAttribute(BEST_MATCHING_PATTERN) : explicit;
+        final String route = pattern == null ? UNMATCHED : request.getMethod() + ' ' + pattern;
+        final Timer existing = routes.get(route);
+        if (existing != null) {
+            return existing;
+        }
+        if (routes.size() >= maxRoutes) {
+            return routes.computeIfAbsent(OTHER, name -> timer("route." + name));
+        }
+        return routes.computeIfAbsent(route, name -> timer("route." + name));
+    }
+
+    private Timer timer(String name) {
+        return metrics.timer(prefix + name, () -> new Timer(new HdrHistogramReservoir(window)));
+    }
+
+    /**
+     * @return timer for the time any pool job waits for a worker thread, see {@link InstrumentedQueuedThreadPool}
+     */
+    Timer getPoolJobWait() {
+        return timer(POOL_JOB_WAIT);
+    }
+
+    @ManagedAttribute("Number of distinct routes recorded")
+    public int getRouteCount() {
+        return routes.size();
+    }
+
+    @ManagedOperation(value = "p50 / p99 / p999 / max in milliseconds: pool job wait, per connector and per route", impact = "INFO")
+    public String percentiles() {
+        final StringBuilder result = new StringBuilder();
+        final Map<String, Timer> all = new TreeMap<>();
+        all.put(POOL_JOB_WAIT, getPoolJobWait());
+        connectors.forEach((name, timer) -> all.put("connector " + name, timer));
+        routes.forEach((name, timer) -> all.put("route " + name, timer));
+        all.forEach((name, timer) -> {
+            final Snapshot snapshot = timer.getSnapshot();
+            result.append(String.format("%s: count=%d p50=%.3f p99=%.3f p999=%.3f max=%.3f%n", name, timer.getCount(),
+                    millis(snapshot.getMedian()), millis(snapshot.get99thPercentile()),
+                    millis(snapshot.get999thPercentile()), millis(snapshot.getMax())));
+        });
+        return result.toString();
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private final class Complete implements AsyncListener {
+        private final Request request;
+        private final long start;
+
+        Complete(Request request, long start) {
+            this.request = request;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+
+/**
+ * Helpers for features that leave {@link ServerConnectorConfig#isManagement() management connectors} alone.
+ */
+final class ManagementConnectors {
+    static final int DEFAULT_RESERVED_THREADS = 4;
+
+    private ManagementConnectors() {
+    }
+
+    static Set<String> names(Map<String, ServerConnectorConfig> activeConnectors) {
+        return activeConnectors.entrySet().stream()
+                .filter(e -> e.getValue().isManagement())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the server's connectors, without the management ones
+     */
+    static Connector[] others(Server server, Set<String> management) {
+        return Arrays.stream(server.getConnectors())
+                .filter(c -> !management.contains(c.getName()))
+                .toArray(Connector[]::new);
+    }
+
+    static boolean isManagement(Request request, Set<String> management) {
+        final Connector connector = request.getHttpChannel().getConnector();
+        return connector != null && management.contains(connector.getName());
+    }
+}
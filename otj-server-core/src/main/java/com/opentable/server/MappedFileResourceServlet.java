@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.QuotedCSV;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.InclusiveByteRange;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DefaultServlet} that serves files at or above a size threshold from {@link MappedByteBuffer}s.
+ * The whole file or a single byte range is handed to Jetty's asynchronous write path, so the content never
+ * passes through heap buffers and no worker thread is held while the client reads it. Smaller files,
+ * resources that are not plain files (e.g. inside a jar), multi-range and {@code If-Range} requests are left to the
+ * {@link DefaultServlet}.
+ * <p>
+ * A mapping is replaced when the file's length or modification time changes, and dropped when the file is removed or
+ * no longer qualifies. Files must be replaced, not rewritten in place: truncating a file while it is mapped makes
+ * reads past its new end fault, which crashes the JVM with {@code SIGBUS} rather than throwing.
+ */
+class MappedFileResourceServlet extends DefaultServlet {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileResourceServlet.class);
+    private static final long serialVersionUID = 1L;
+
+    private final long thresholdBytes;
+    private final transient ConcurrentMap<String, MappedFile> mapped = new ConcurrentHashMap<>();
+    private final transient LongAdder served = new LongAdder();
+
+    /**
+     * @param thresholdBytes smallest file to map; {@link Long#MAX_VALUE} never maps
+     */
+    MappedFileResourceServlet(long thresholdBytes) {
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        final MappedFile file = thresholdBytes == Long.MAX_VALUE
+                || request.getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI) != null
+                || request.getHeader(HttpHeader.IF_RANGE.asString()) != null
+                ? null : map(pathInContext(request));
+        if (file == null || !serve(request, response, file)) {
+            super.doGet(request, response);
+        } else {
+            served.increment();
+        }
+    }
+
+    /**
+     * @return number of responses served from a mapped file
+     */
+    long getServed() {
+        return served.sum();
+    }
+
+    static String pathInContext(HttpServletRequest request) {
+        final String pathInfo = request.getPathInfo();
+        return pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+    }
+
+    private MappedFile map(String path) throws IOException {
+        final Resource resource = getResource(path);
+        final File file = resource == null ? null : resource.getFile();
+        final long length = file == null ? -1 : resource.length();
+        if (file == null || !resource.exists() || resource.isDirectory()
+                || length < thresholdBytes || length > Integer.MAX_VALUE) {
+            unmap(path);
+            return null;
+        }
+        final long lastModified = resource.lastModified();
+        final MappedFile existing = mapped.get(path);
+        if (existing != null && existing.lastModified == lastModified && existing.length == length) {
+            return existing;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedFile created = new MappedFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, length),
+                    lastModified, length, resource.getWeakETag(),
+                    getServletContext().getMimeType(path));
+            LOG.debug("Mapped {} ({} bytes)", file, length);
+            if (mapped.put(path, created) != null) {
+                LOG.debug("Replaced mapping of {}", file);
+            }
+            return created;
+        }
+    }
+
+    private void unmap(String path) {
+        // The buffer itself is unmapped once in-flight responses let go of it and it is collected
+        if (mapped.remove(path) != null) {
+            LOG.debug("Dropped mapping of {}", path);
+        }
+    }
+
+    /**
+     * @return false if the request should be left to the {@link DefaultServlet}
+     */
+    private boolean serve(HttpServletRequest request, HttpServletResponse response, MappedFile file) throws IOException {
+        long first = 0;
+        long last = file.length - 1;
+        if (request.getHeader(HttpHeader.RANGE.asString()) != null) {
+            final List<InclusiveByteRange> ranges = InclusiveByteRange.satisfiableRanges(
+                    request.getHeaders(HttpHeader.RANGE.asString()), file.length);
+            if (ranges == null || ranges.size() != 1) {
+                // Unsatisfiable (416) and multipart responses
+                return false;
+            }
+            first = ranges.get(0).getFirst();
+            last = ranges.get(0).getLast();
+        }
+        final boolean head = "HEAD".equals(request.getMethod());
+        if (!head && !(response.getOutputStream() instanceof HttpOutput)) {
+            return false;
+        }
+
+        response.setHeader(HttpHeader.ETAG.asString(), file.etag);
+        response.setHeader(HttpHeader.LAST_MODIFIED.asString(), file.lastModifiedHeader);
+        response.setHeader(HttpHeader.ACCEPT_RANGES.asString(), "bytes");
+        if (notModified(request, file)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        if (file.contentType != null) {
+            response.setContentType(file.contentType);
+        }
+        if (first != 0 || last != file.length - 1) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeader.CONTENT_RANGE.asString(),
+                    new InclusiveByteRange(first, last).toHeaderRangeString(file.length));
+        }
+        response.setContentLengthLong(last - first + 1);
+        if (head) {
+            return true;
+        }
+
+        final HttpOutput out = (HttpOutput) response.getOutputStream();
+        final ByteBuffer content = file.buffer.duplicate();
+        content.limit((int) last + 1).position((int) first);
+        if (!request.isAsyncSupported()) {
+            out.sendContent(content);
+            return true;
+        }
+        final AsyncContext async = request.startAsync();
+        // The write completes or fails on its own; the default timeout would abort slow downloads
+        async.setTimeout(0);
+        out.sendContent(content, new Callback() {
+            @Override
+            public void succeeded() {
+                async.complete();
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                LOG.debug("Failed to send {}", pathInContext(request), x);
+                async.complete();
+            }
+        });
+        return true;
+    }
+
+    private static boolean notModified(HttpServletRequest request, MappedFile file) {
+        final String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+        if (ifNoneMatch != null) {
+            for (String tag : new QuotedCSV(true, ifNoneMatch).getValues()) {
+                final String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+                if ("*".equals(opaque) || file.etag.substring(2).equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            final long ifModifiedSince = request.getDateHeader(HttpHeader.IF_MODIFIED_SINCE.asString());
+            return ifModifiedSince != -1 && file.lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static class MappedFile {
+        private final MappedByteBuffer buffer;
+        private final long lastModified;
+        private final String lastModifiedHeader;
+        private final long length;
+        private final String etag;
+        private final String contentType;
+
+        MappedFile(MappedByteBuffer buffer, long lastModified, long length, String etag, String contentType) {
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+            this.lastModifiedHeader = DateGenerator.formatDate(lastModified);
+            this.length = length;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+    }
+}
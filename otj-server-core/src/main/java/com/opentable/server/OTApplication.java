@@ -44,6 +44,9 @@ public final class OTApplication {
     public static final String ORG_SPRINGFRAMEWORK_BOOT_LOGGING_LOGGING_SYSTEM = "org.springframework.boot.logging.LoggingSystem";
     public static final String LOGGING_CONFIG = "logging.config";
     public static final String LEGACY_LOGGING_CONFIG = "logback.configurationFile";
+    /** Server wide switch for stateless TLS session tickets, copied to the JDK's own JVM wide property. */
+    public static final String SSL_SESSION_TICKETS = "ot.server.ssl.session-tickets";
+    private static final String JDK_SESSION_TICKETS = "jdk.tls.server.enableSessionTicketExtension";
 
     private OTApplication() { }
 
@@ -124,8 +127,16 @@ public final class OTApplication {
             }
         }
 
+        // JSSE reads this once, when TLS is first used, so it has to be set before anything starts
+        final String sessionTickets = System.getProperty(SSL_SESSION_TICKETS);
+        if (StringUtils.isNotBlank(sessionTickets)) {
+            System.setProperty(JDK_SESSION_TICKETS, String.valueOf(Boolean.parseBoolean(sessionTickets.trim())));
+        }
+
         final SpringApplicationBuilder builder = new SpringApplicationBuilder(applicationClass);
         builder.main(applicationClass);
+        StartupProfiler.installIfEnabled(builder);
+        ClassDataSharing.install(builder);
         customize.accept(builder);
         return builder.run(args);
     }
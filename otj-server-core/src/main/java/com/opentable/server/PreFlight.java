@@ -35,6 +35,8 @@ public class PreFlight {
 
     private static final Logger LOG = LoggerFactory.getLogger(PreFlight.class);
 
+    private StartupPhases startupPhases;
+
     @Inject
     public PreFlight(K8sInfo k8sInfo) {
         LOG.debug("Setting k8sInfo kubernetes: {}, cluster: {}, namespace:{}",
@@ -62,10 +64,24 @@ public class PreFlight {
         }
     }
 
+    @Inject
+    void setStartupPhases(StartupPhases startupPhases) {
+        this.startupPhases = startupPhases;
+    }
+
     @PostConstruct
     public void start() {
+        LOG.info("At startup: JVM {} processors, and Jetty {} processors", Runtime.getRuntime().availableProcessors(), ProcessorUtils.availableProcessors());
+        if (startupPhases == null) {
+            logManifests();
+        } else if (!startupPhases.isFastStartup() || LOG.isDebugEnabled()) {
+            // Manifests are only logged at debug, fast startup does not read them for nothing
+            startupPhases.run("manifests", this::logManifests);
+        }
+    }
+
+    private void logManifests() {
         try {
-            LOG.info("At startup: JVM {} processors, and Jetty {} processors", Runtime.getRuntime().availableProcessors(), ProcessorUtils.availableProcessors());
             readManifests();
         } catch (IOException e) {
             LOG.debug("Error while reading manifest", e);
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+/**
+ * A request priority class, bound from {@code ot.server.priority-queue.class.<name>}. A request belongs to the first
+ * class whose header, path prefixes and connectors all match; empty criteria match everything.
+ */
+public interface PriorityClassConfig {
+    /**
+     * Higher runs first. A waiting request gains one level per {@code ot.server.priority-queue.aging} it has waited.
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * Request header to match: {@code Name} for presence, {@code Name=value} for a value (case insensitive).
+     */
+    default String getHeader() {
+        return "";
+    }
+
+    /**
+     * Comma separated path prefixes.
+     */
+    default String getPaths() {
+        return "";
+    }
+
+    /**
+     * Comma separated connector names.
+     */
+    default String getConnectors() {
+        return "";
+    }
+
+    /**
+     * Longest a request of this class waits in the queue before it is shed, in milliseconds.
+     */
+    default long getMaxWaitMillis() {
+        return 1_000;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Splitter;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * Orders requests by priority once the worker pool is busy. Up to {@code maxConcurrent} requests run at once; the
+ * rest are suspended with servlet async, holding no thread, in a bounded queue. Whenever a request finishes, the
+ * waiting request with the highest effective priority is dispatched next. The effective priority is the class
+ * priority plus one level per {@code aging} waited, so low priority requests are delayed but never starved. Requests
+ * that wait longer than their class allows, or find the queue full, are shed with a {@code 503}. A request that the
+ * application suspends with servlet async gives its slot back, since it no longer holds a thread.
+ */
+@ManagedObject("Priority ordered request queue")
+public class PriorityQueueHandler extends AsyncLimitHandler<PriorityQueueHandler.PriorityClass> {
+    private static final Splitter SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final List<PriorityClass> classes = new ArrayList<>();
+    private final PriorityClass defaultClass;
+    private final long agingNanos;
+    private final Set<String> managementConnectors;
+    private final Limit limit;
+
+    PriorityQueueHandler(Map<String, PriorityClassConfig> configs, PriorityClassConfig defaultConfig, int maxConcurrent,
+                         int maxQueued, Duration aging, Duration retryAfter, Set<String> managementConnectors) {
+        super(retryAfter);
+        configs.forEach((name, config) -> classes.add(new PriorityClass(name, config)));
+        this.defaultClass = new PriorityClass("default", defaultConfig);
+        this.agingNanos = Math.max(1, aging.toNanos());
+        this.managementConnectors = managementConnectors;
+        this.limit = new Limit(maxConcurrent, maxQueued, new PriorityBlockingQueue<>(11,
+                Comparator.comparingLong(this::key).thenComparingLong(w -> w.sequence)));
+    }
+
+    /**
+     * Effective priority is {@code priority + waited / aging}. Ordering by {@code enqueued - priority * aging}, smallest
+     * first, gives the same order and, unlike the effective priority, does not change while waiting.
+     */
+    private long key(Waiter waiter) {
+        return waiter.enqueued - waiter.group.priority * agingNanos;
+    }
+
+    @Override
+    PriorityClass groupOf(String target, Request request) {
+        if (ManagementConnectors.isManagement(request, managementConnectors)) {
+            return null;
+        }
+        final Connector connector = request.getHttpChannel().getConnector();
+        final String connectorName = connector == null ? null : connector.getName();
+        for (PriorityClass priorityClass : classes) {
+            if (priorityClass.matches(request, connectorName, target)) {
+                return priorityClass;
+            }
+        }
+        return defaultClass;
+    }
+
+    @Override
+    Limit limitOf(PriorityClass priorityClass) {
+        return limit;
+    }
+
+    @Override
+    long maxWaitMillis(PriorityClass priorityClass) {
+        return priorityClass.maxWaitMillis;
+    }
+
+    /**
+     * The queue orders requests for worker threads; long-polls and streams that suspend hold none.
+     */
+    @Override
+    boolean holdsAsync() {
+        return false;
+    }
+
+    @Override
+    void admitted(PriorityClass priorityClass, long waitedNanos) {
+        priorityClass.queueWait.update(waitedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void rejected(PriorityClass priorityClass) {
+        priorityClass.shed.mark();
+    }
+
+    @Override
+    void expired(PriorityClass priorityClass, long waitedNanos) {
+        priorityClass.shed.mark();
+        priorityClass.queueWait.update(waitedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void queued(PriorityClass priorityClass, int delta) {
+        priorityClass.queued.addAndGet(delta);
+    }
+
+    List<PriorityClass> getClasses() {
+        final List<PriorityClass> all = new ArrayList<>(classes);
+        all.add(defaultClass);
+        return Collections.unmodifiableList(all);
+    }
+
+    @ManagedAttribute("Requests currently running")
+    public int getActive() {
+        return limit.getActive();
+    }
+
+    @ManagedAttribute("Requests currently waiting")
+    public int getQueued() {
+        return limit.getQueued();
+    }
+
+    final class PriorityClass {
+        private final String name;
+        private final int priority;
+        private final String headerName;
+        private final String headerValue;
+        private final List<String> paths;
+        private final List<String> connectors;
+        private final long maxWaitMillis;
+        private final Timer queueWait = new Timer(new HdrHistogramReservoir(WINDOW));
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Meter shed = new Meter();
+
+        PriorityClass(String name, PriorityClassConfig config) {
+            this.name = name;
+            this.priority = config.getPriority();
+            final List<String> header = Splitter.on('=').limit(2).trimResults().splitToList(config.getHeader());
+            this.headerName = header.get(0);
+            this.headerValue = header.size() > 1 ? header.get(1) : null;
+            this.paths = SPLITTER.splitToList(config.getPaths());
+            this.connectors = SPLITTER.splitToList(config.getConnectors());
+            this.maxWaitMillis = config.getMaxWaitMillis();
+        }
+
+        boolean matches(Request request, String connectorName, String target) {
+            if (!connectors.isEmpty() && !connectors.contains(connectorName)) {
+                return false;
+            }
+            if (!paths.isEmpty() && paths.stream().noneMatch(target::startsWith)) {
+                return false;
+            }
+            if (!headerName.isEmpty()) {
+                final String value = request.getHeader(headerName);
+                return value != null && (headerValue == null || headerValue.equalsIgnoreCase(value.trim()));
+            }
+            return true;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Timer getQueueWait() {
+            return queueWait;
+        }
+
+        int getQueued() {
+            return queued.get();
+        }
+
+        long getShed() {
+            return shed.getCount();
+        }
+
+        Meter getShedMeter() {
+            return shed;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.ProxyConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * {@link ServerConnector} whose endpoints remember when the selector last found them ready. Whatever runs the
+ * resulting task, a pooled thread after waiting in the queue, a reserved thread, or the selector itself, a request
+ * parsed from those bytes can tell how long it waited for a thread with {@link #queueDelayNanos(Request)}.
+ */
+class QueueDelayServerConnector extends ServerConnector {
+
+    QueueDelayServerConnector(Server server, Executor executor, Scheduler scheduler, ByteBufferPool bufferPool,
+                              int acceptors, int selectors, ConnectionFactory... factories) {
+        super(server, executor, scheduler, bufferPool, acceptors, selectors, factories);
+    }
+
+    @Override
+    protected SocketChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key) throws IOException {
+        final SelectedEndPoint endPoint = new SelectedEndPoint(channel, selectSet, key, getScheduler());
+        endPoint.setIdleTimeout(getIdleTimeout());
+        return endPoint;
+    }
+
+    /**
+     * @return nanoseconds since the selector last found the request's connection ready, or -1 if the request did not
+     * arrive on this kind of connector. For HTTP/2 this is the latest read of the shared connection, so it may
+     * understate the wait of a stream.
+     */
+    static long queueDelayNanos(Request request) {
+        EndPoint endPoint = request.getHttpChannel().getEndPoint();
+        while (true) {
+            if (endPoint instanceof SelectedEndPoint) {
+                final long selected = ((SelectedEndPoint) endPoint).selectedNanos;
+                return selected == 0 ? -1 : Math.max(0, System.nanoTime() - selected);
+            } else if (endPoint instanceof SslConnection.DecryptedEndPoint) {
+                endPoint = ((SslConnection.DecryptedEndPoint) endPoint).getSslConnection().getEndPoint();
+            } else if (endPoint instanceof ProxyConnectionFactory.ProxyEndPoint) {
+                endPoint = ((ProxyConnectionFactory.ProxyEndPoint) endPoint).unwrap();
+            } else {
+                return -1;
+            }
+        }
+    }
+
+    private static final class SelectedEndPoint extends SocketChannelEndPoint {
+        private volatile long selectedNanos;
+
+        SelectedEndPoint(SocketChannel channel, ManagedSelector selector, SelectionKey key, Scheduler scheduler) {
+            super(channel, selector, key, scheduler);
+        }
+
+        @Override
+        public Runnable onSelected() {
+            selectedNanos = System.nanoTime();
+            return super.onSelected();
+        }
+    }
+}
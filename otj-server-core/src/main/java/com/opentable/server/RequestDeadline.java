@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * The point in time by which the caller stops waiting for a request, when known. Application code can use
+ * {@link #remaining()} to size timeouts of downstream calls, and pass the deadline on.
+ */
+public final class RequestDeadline {
+    static final String ATTRIBUTE = RequestDeadline.class.getName();
+
+    private final long deadlineMillis;
+    private final boolean fromHeader;
+
+    RequestDeadline(long deadlineMillis, boolean fromHeader) {
+        this.deadlineMillis = deadlineMillis;
+        this.fromHeader = fromHeader;
+    }
+
+    /**
+     * @return the deadline of the request, or null if it has none or deadlines are not enabled
+     */
+    public static RequestDeadline of(ServletRequest request) {
+        return (RequestDeadline) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * @return epoch milliseconds by which the caller gives up
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * @return whether the caller sent the deadline, rather than it coming from the connector default
+     */
+    public boolean isFromHeader() {
+        return fromHeader;
+    }
+
+    /**
+     * @return time left, negative once expired
+     */
+    public Duration remaining() {
+        return Duration.ofMillis(deadlineMillis - System.currentTimeMillis());
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= deadlineMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestDeadline{deadlineMillis=" + deadlineMillis + ", fromHeader=" + fromHeader + '}';
+    }
+}
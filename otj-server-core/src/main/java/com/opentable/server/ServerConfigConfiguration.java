@@ -38,6 +38,7 @@ import com.opentable.spring.PropertySourceUtil;
         AppInfo.class,
         EnvInfo.class,
         K8sInfo.class,
+        StartupPhases.class,
 })
 public class ServerConfigConfiguration {
     private static final String INDENT = "    ";
@@ -48,7 +49,11 @@ public class ServerConfigConfiguration {
     }
 
     @Inject
-    public void logAppConfig(final ConfigurableEnvironment env) {
+    public void logAppConfig(final ConfigurableEnvironment env, final StartupPhases startupPhases) {
+        startupPhases.run("config-dump", () -> logAppConfig(env));
+    }
+
+    private static void logAppConfig(final ConfigurableEnvironment env) {
         final Logger log = LoggerFactory.getLogger(ServerConfigConfiguration.class);
         log.info("{}:\n\n{}{}\n", env, INDENT,
             PropertySourceUtil.getKeys(env)
@@ -49,4 +49,131 @@ public interface ServerConnectorConfig {
     default boolean isAllowEmptySni() {
         return true;
     }
+
+    /**
+     * Maximum number of concurrent streams per HTTP/2 connection ({@code h2}, {@code h2c} and {@code proxy+h2c}).
+     * Values less than or equal to 0 keep the Jetty default.
+     */
+    default int getHttp2MaxConcurrentStreams() {
+        return 0;
+    }
+
+    /**
+     * Initial HTTP/2 flow control window, in bytes, for each stream.
+     * Values less than or equal to 0 keep the Jetty default.
+     */
+    default int getHttp2InitialStreamRecvWindow() {
+        return 0;
+    }
+
+    /**
+     * Initial HTTP/2 flow control window, in bytes, for the whole session.
+     * Values less than or equal to 0 keep the Jetty default.
+     */
+    default int getHttp2InitialSessionRecvWindow() {
+        return 0;
+    }
+
+    /**
+     * Maximum size, in bytes, of the decoded HTTP/2 header list.
+     * Values less than or equal to 0 fall back to {@code ot.httpserver.max-request-header-size}.
+     */
+    default int getHttp2MaxHeaderListSize() {
+        return 0;
+    }
+
+    /**
+     * Buffer pool for this connector: {@code default} shares the server's pool, {@code array} uses a pool with
+     * linearly sized buckets ({@code bufferPoolFactor} apart) and {@code logarithmic} one with power of two buckets.
+     */
+    default String getBufferPool() {
+        return "default";
+    }
+
+    /**
+     * Bucket size step of the {@code array} pool, in bytes. Values less than or equal to 0 use 1024.
+     */
+    default int getBufferPoolFactor() {
+        return 0;
+    }
+
+    /**
+     * Largest buffer that is pooled, in bytes; larger ones are allocated and dropped. Values less than or equal
+     * to 0 use 65536.
+     */
+    default int getBufferPoolMaxCapacity() {
+        return 0;
+    }
+
+    /**
+     * Maximum number of buffers retained per bucket. Values less than or equal to 0 do not limit it.
+     */
+    default int getBufferPoolMaxBucketSize() {
+        return 0;
+    }
+
+    /**
+     * Maximum heap memory retained by the pool, in bytes. 0 lets Jetty pick (a quarter of the max heap),
+     * negative values do not limit it.
+     */
+    default long getBufferPoolMaxHeapMemory() {
+        return 0;
+    }
+
+    /**
+     * Maximum direct memory retained by the pool, in bytes. 0 lets Jetty pick (a quarter of the max direct
+     * memory), negative values do not limit it.
+     */
+    default long getBufferPoolMaxDirectMemory() {
+        return 0;
+    }
+
+    /**
+     * JCA provider for TLS: {@code jdk}, the name of a registered provider, {@code Conscrypt}, or the class name
+     * of a provider to install. Providers that are not on the classpath fall back to the JDK with a warning.
+     */
+    default String getSslProvider() {
+        return "jdk";
+    }
+
+    /**
+     * Maximum number of TLS sessions cached for resumption. Values less than or equal to 0 keep the JDK default
+     * ({@code javax.net.ssl.sessionCacheSize}, 20480).
+     */
+    default int getSslSessionCacheSize() {
+        return 0;
+    }
+
+    /**
+     * How long, in seconds, a TLS session (cached or in a ticket) can be resumed. Values less than or equal to 0
+     * keep the JDK default of 24 hours.
+     */
+    default int getSslSessionTimeout() {
+        return 0;
+    }
+
+    /**
+     * Management connector, for health, ready and metrics endpoints: it gets a thread pool of its own (see
+     * {@link #getReservedThreads()}) and is exempt from admission control, bulkheads, connection limits and the low
+     * resource monitor, so probes are answered while business traffic saturates the server.
+     */
+    default boolean isManagement() {
+        return false;
+    }
+
+    /**
+     * Threads reserved for this connector's requests. When greater than 0, the connector runs one acceptor, one
+     * selector and its requests on a pool of its own instead of the server's pool. Management connectors default to 4.
+     */
+    default int getReservedThreads() {
+        return 0;
+    }
+
+    /**
+     * Deadline, in milliseconds from when the request was received, for requests that do not carry a deadline
+     * header. Only used with {@code ot.server.deadline.enabled}; values less than or equal to 0 mean no deadline.
+     */
+    default long getDefaultDeadlineMillis() {
+        return 0;
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.security.Provider;
+import java.security.Security;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the {@code sslProvider} of a connector to a registered JCA {@link Provider} name. Native providers are
+ * optional runtime dependencies: they are looked up and installed reflectively, and when one is missing or cannot
+ * create TLS contexts the connector falls back to the JDK provider.
+ */
+final class SslProviders {
+    private static final Logger LOG = LoggerFactory.getLogger(SslProviders.class);
+
+    static final String JDK = "jdk";
+    static final String CONSCRYPT = "Conscrypt";
+    private static final String CONSCRYPT_CLASS = "org.conscrypt.Conscrypt";
+
+    private SslProviders() {
+        /* utility class */
+    }
+
+    /**
+     * @param connector connector name, for logging
+     * @param requested {@code jdk}, the name of a registered provider, {@code Conscrypt}, or a provider class name
+     * @return provider name for {@code SslContextFactory.setProvider}, or null for the JDK default
+     */
+    static synchronized String resolve(String connector, String requested) {
+        if (requested == null || requested.isBlank() || JDK.equals(requested.trim().toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        final String name = requested.trim();
+        Provider provider = Security.getProvider(name);
+        if (provider == null) {
+            try {
+                provider = install(name);
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                LOG.warn("TLS provider '{}' for connector '{}' is not available, using the JDK provider", name, connector, e);
+                return null;
+            }
+        }
+        if (provider.getService("SSLContext", "TLS") == null) {
+            LOG.warn("Provider '{}' for connector '{}' has no TLS implementation, using the JDK provider", provider.getName(), connector);
+            return null;
+        }
+        LOG.info("Connector '{}' uses TLS provider {} {}", connector, provider.getName(), provider.getVersionStr());
+        return provider.getName();
+    }
+
+    private static Provider install(String name) throws ReflectiveOperationException {
+        final Provider provider;
+        if (CONSCRYPT.equalsIgnoreCase(name)) {
+            provider = (Provider) Class.forName(CONSCRYPT_CLASS).getMethod("newProvider").invoke(null);
+        } else {
+            provider = (Provider) Class.forName(name).getConstructor().newInstance();
+        }
+        final Provider registered = Security.getProvider(provider.getName());
+        if (registered != null) {
+            return registered;
+        }
+        // Last, so it only serves the connectors that ask for it by name
+        Security.addProvider(provider);
+        return provider;
+    }
+}
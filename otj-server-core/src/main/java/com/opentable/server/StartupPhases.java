@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Times the setup steps of {@link NonWebSetup} and reports them once the context is refreshed (for web
+ * applications, after the connectors are open).
+ *
+ * With {@code ot.server.fast-startup=true}, steps that nothing else depends on (the configuration dump, manifest
+ * logging) run on background threads while the rest of the context starts, instead of one after the other.
+ */
+public class StartupPhases {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupPhases.class);
+    static final String METRIC_PREFIX = "startup.";
+
+    private final boolean fastStartup;
+    private final ObjectProvider<MetricRegistry> metrics;
+    private final Map<String, Long> phases = new ConcurrentSkipListMap<>();
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private final ExecutorService executor;
+
+    StartupPhases(@Value("${ot.server.fast-startup:false}") boolean fastStartup, ObjectProvider<MetricRegistry> metrics) {
+        this.fastStartup = fastStartup;
+        this.metrics = metrics;
+        this.executor = fastStartup
+                ? Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setNameFormat("startup-%d").setDaemon(true).build())
+                : null;
+    }
+
+    public boolean isFastStartup() {
+        return fastStartup;
+    }
+
+    /**
+     * Runs and times a step: in the background in fast startup mode, right away otherwise.
+     */
+    public void run(String phase, Runnable step) {
+        if (executor == null) {
+            timed(phase, step);
+        } else {
+            executor.execute(() -> timed(phase, step));
+        }
+    }
+
+    private void timed(String phase, Runnable step) {
+        final long start = System.nanoTime();
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            LOG.warn("Startup phase '{}' failed", phase, e);
+        } finally {
+            record(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public void record(String phase, long millis) {
+        phases.put(phase, millis);
+        if (reported.get()) {
+            // Finished in the background after the summary
+            LOG.info("Startup phase '{}' took {} ms", phase, millis);
+        } else {
+            LOG.debug("Startup phase '{}' took {} ms", phase, millis);
+        }
+        final MetricRegistry registry = metrics.getIfAvailable();
+        if (registry != null) {
+            registry.gauge(METRIC_PREFIX + phase + "-ms", () -> (Gauge<Long>) () -> phases.getOrDefault(phase, 0L));
+        }
+    }
+
+    /**
+     * Records a step that failed in a way the application cannot run properly without, exported as
+     * {@code startup.<phase>-failed}.
+     */
+    public void failed(String phase, Exception e) {
+        LOG.error("Startup phase '{}' failed", phase, e);
+        failed.add(phase);
+        final MetricRegistry registry = metrics.getIfAvailable();
+        if (registry != null) {
+            registry.gauge(METRIC_PREFIX + phase + "-failed", () -> (Gauge<Integer>) () -> failed.contains(phase) ? 1 : 0);
+        }
+    }
+
+    public boolean isFailed(String phase) {
+        return failed.contains(phase);
+    }
+
+    /**
+     * @return phase durations in milliseconds, by name
+     */
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    @EventListener
+    public void contextRefreshed(ContextRefreshedEvent event) {
+        // Child contexts publish to their parents as well, only the first refresh is ours
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        record("context", now - event.getApplicationContext().getStartupDate());
+        record("jvm", now - ManagementFactory.getRuntimeMXBean().getStartTime());
+        LOG.info("Startup{}: {}", fastStartup ? " (fast)" : "", phases.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue() + "ms")
+                .collect(Collectors.joining(", ")));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
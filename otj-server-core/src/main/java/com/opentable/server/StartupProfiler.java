@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Opt-in startup profiler for {@link OTApplication}. Buffers Spring's {@code ApplicationStartup} steps and, when the
+ * application is ready, reports the slowest beans (time spent in the bean itself, excluding beans it pulled in), the
+ * slowest configurations (the sum over the beans they define), how long each connector took to bind, and the time to
+ * ready. The report is logged, exposed over JMX and written as JSON.
+ *
+ * Enabled with the system property {@code -Dot.server.startup-profiler.enabled=true}, since it has to be installed
+ * before the environment exists.
+ */
+@ManagedResource
+public class StartupProfiler implements ApplicationListener<ApplicationReadyEvent>, Consumer<Server> {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupProfiler.class);
+
+    static final String ENABLED = "ot.server.startup-profiler.enabled";
+    static final String CAPACITY = "ot.server.startup-profiler.capacity";
+    static final String TOP = "ot.server.startup-profiler.top";
+    static final String FILE = "ot.server.startup-profiler.file";
+    static final String BEAN_NAME = "otStartupProfiler";
+    private static final String INSTANTIATE = "spring.beans.instantiate";
+    private static final String CONFIGURATION_CLASS = "org.springframework.context.annotation.ConfigurationClassPostProcessor.configurationClass";
+
+    private final BufferingApplicationStartup startup;
+    private final long createdNanos = System.nanoTime();
+    private final ConcurrentMap<String, Long> connectorBindMillis = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> report;
+
+    StartupProfiler(int capacity) {
+        this.startup = new BufferingApplicationStartup(capacity);
+    }
+
+    /**
+     * Installs a profiler on the builder if {@value #ENABLED} is set.
+     */
+    static void installIfEnabled(SpringApplicationBuilder builder) {
+        if (!Boolean.getBoolean(ENABLED)) {
+            return;
+        }
+        final StartupProfiler profiler = new StartupProfiler(Integer.getInteger(CAPACITY, 20_000));
+        builder.applicationStartup(profiler.startup);
+        builder.listeners(profiler);
+        // As a bean, to see the connectors bind and to be exported over JMX
+        builder.initializers(context -> context.getBeanFactory().registerSingleton(BEAN_NAME, profiler));
+    }
+
+    @Override
+    public void accept(Server server) {
+        for (Connector connector : server.getConnectors()) {
+            connector.addEventListener(new LifeCycle.Listener() {
+                private long starting;
+
+                @Override
+                public void lifeCycleStarting(LifeCycle event) {
+                    starting = System.nanoTime();
+                }
+
+                @Override
+                public void lifeCycleStarted(LifeCycle event) {
+                    connectorBindMillis.put(connector.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - starting));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (report != null) {
+            return;
+        }
+        final Environment env = event.getApplicationContext().getEnvironment();
+        final int top = env.getProperty(TOP, Integer.class, 20);
+        report = buildReport(event.getApplicationContext().getBeanFactory(), top);
+        LOG.info("Startup profile:\n{}", format(report));
+
+        final String file = env.getProperty(FILE, "startup-profile.json");
+        if (StringUtils.isNotBlank(file)) {
+            final Path path = Paths.get(file);
+            try {
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+                LOG.info("Startup profile written to {}", path.toAbsolutePath());
+            } catch (IOException e) {
+                LOG.warn("Could not write startup profile to {}", path.toAbsolutePath(), e);
+            }
+        }
+    }
+
+    private Map<String, Object> buildReport(ConfigurableListableBeanFactory beanFactory, int top) {
+        final StartupTimeline timeline = startup.getBufferedTimeline();
+        final Map<Long, Long> childMillis = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            final Long parent = event.getStartupStep().getParentId();
+            if (parent != null) {
+                childMillis.merge(parent, event.getDuration().toMillis(), Long::sum);
+            }
+        }
+
+        final List<Map<String, Object>> beans = new ArrayList<>();
+        final Map<String, Long> configurations = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            final StartupStep step = event.getStartupStep();
+            if (!INSTANTIATE.equals(step.getName())) {
+                continue;
+            }
+            final String beanName = tag(step, "beanName");
+            final long total = event.getDuration().toMillis();
+            final long self = Math.max(0, total - childMillis.getOrDefault(step.getId(), 0L));
+            final Map<String, Object> bean = new LinkedHashMap<>();
+            bean.put("bean", beanName);
+            bean.put("type", tag(step, "beanType"));
+            bean.put("selfMs", self);
+            bean.put("totalMs", total);
+            beans.add(bean);
+
+            final String configuration = configurationOf(beanFactory, beanName);
+            if (configuration != null) {
+                configurations.merge(configuration, self, Long::sum);
+            }
+        }
+        beans.sort(Comparator.comparing((Map<String, Object> bean) -> (Long) bean.get("selfMs")).reversed());
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jvmToReadyMs", System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        result.put("runToReadyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos));
+        result.put("connectorBindMs", new LinkedHashMap<>(connectorBindMillis));
+        result.put("beans", beans.subList(0, Math.min(top, beans.size())));
+        result.put("configurations", configurations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(top)
+                .map(e -> {
+                    final Map<String, Object> configuration = new LinkedHashMap<>();
+                    configuration.put("configuration", e.getKey());
+                    configuration.put("selfMs", e.getValue());
+                    return configuration;
+                })
+                .collect(Collectors.toList()));
+        if (timeline.getEvents().size() >= Integer.getInteger(CAPACITY, 20_000)) {
+            result.put("truncated", true);
+        }
+        return result;
+    }
+
+    /**
+     * @return the configuration that defines the bean (its factory bean), the bean itself for configurations,
+     * or null for beans that are neither
+     */
+    private static String configurationOf(ConfigurableListableBeanFactory beanFactory, String beanName) {
+        if (beanName == null || !beanFactory.containsBeanDefinition(beanName)) {
+            return null;
+        }
+        try {
+            final BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (definition.getFactoryBeanName() != null) {
+                return definition.getFactoryBeanName();
+            }
+            return definition.getAttribute(CONFIGURATION_CLASS) != null ? beanName : null;
+        } catch (NoSuchBeanDefinitionException e) {
+            return null;
+        }
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String format(Map<String, Object> report) {
+        final StringBuilder result = new StringBuilder();
+        result.append(String.format("  ready %d ms after JVM start, %d ms after run%n", report.get("jvmToReadyMs"), report.get("runToReadyMs")));
+        ((Map<String, Long>) report.get("connectorBindMs")).forEach((name, millis) ->
+                result.append(String.format("  connector %s bound in %d ms%n", name, millis)));
+        result.append(String.format("  slowest configurations (self ms):%n"));
+        for (Map<String, Object> configuration : (List<Map<String, Object>>) report.get("configurations")) {
+            result.append(String.format("    %6d %s%n", configuration.get("selfMs"), configuration.get("configuration")));
+        }
+        result.append(String.format("  slowest beans (self ms / total ms):%n"));
+        for (Map<String, Object> bean : (List<Map<String, Object>>) report.get("beans")) {
+            result.append(String.format("    %6d %6d %s%n", bean.get("selfMs"), bean.get("totalMs"), bean.get("bean")));
+        }
+        return result.toString();
+    }
+
+    @ManagedAttribute(description = "Startup profile, once the application is ready")
+    public String getReport() {
+        final Map<String, Object> current = report;
+        return current == null ? "not ready yet" : format(current);
+    }
+
+    Map<String, Object> getReportData() {
+        return report;
+    }
+}
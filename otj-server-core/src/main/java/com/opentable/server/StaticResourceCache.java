@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of classpath static resources, keyed by path (e.g. {@code /static/app.css}). Each entry holds the
+ * content plus its gzip variant (built here, kept only when smaller) and its brotli variant (read from a
+ * precompressed {@code .br} sibling on the classpath, if there is one), each with a strong ETag.
+ * Entries are weighed by their total size in bytes and evicted least recently used first; anything evicted
+ * is loaded again on its next request.
+ */
+class StaticResourceCache {
+    private static final Logger LOG = LoggerFactory.getLogger(StaticResourceCache.class);
+    private static final MimeTypes MIME_TYPES = new MimeTypes();
+
+    private final Cache<String, CachedResource> cache;
+    private final Meter hits = new Meter();
+    private final Meter misses = new Meter();
+    private final Meter evictions = new Meter();
+    private final String prefix;
+    private final long maxFileBytes;
+    private final boolean offHeap;
+
+    /**
+     * @param prefix only paths below this prefix are cached, e.g. {@code /static/}
+     * @param maxBytes total weight of all entries
+     * @param maxFileBytes files larger than this are never cached
+     * @param offHeap keep content in direct buffers
+     * @param expireAfterAccess drop entries that have not been served for this long, or null to keep them
+     */
+    StaticResourceCache(String prefix, long maxBytes, long maxFileBytes, boolean offHeap, Duration expireAfterAccess) {
+        final CacheBuilder<String, CachedResource> builder = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String path, CachedResource resource) -> resource.weight())
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        evictions.mark();
+                    }
+                });
+        if (expireAfterAccess != null) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        this.cache = builder.build();
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Load everything below {@code root} (the classpath resource for the prefix).
+     * @param root static resource directory
+     */
+    void preload(Resource root) {
+        preload(root, prefix);
+        LOG.info("Preloaded {} static resources ({} bytes)", cache.size(), getBytes());
+    }
+
+    private void preload(Resource directory, String path) {
+        final String[] names = directory.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            try (Resource child = directory.addPath(name)) {
+                if (child.isDirectory()) {
+                    preload(child, path + name);
+                } else if (!name.endsWith(".br")) {
+                    load(path + name, child);
+                }
+            } catch (IOException e) {
+                LOG.warn("Unable to preload static resource {}{}", path, name, e);
+            }
+        }
+    }
+
+    /**
+     * @param path request path
+     * @return the cached resource, loading it if necessary, or null if it can not be served from the cache
+     */
+    CachedResource get(String path) {
+        CachedResource resource = cache.getIfPresent(path);
+        if (resource != null) {
+            hits.mark();
+            return resource;
+        }
+        misses.mark();
+        if (!path.startsWith(prefix) || path.endsWith("/") || path.contains("..")) {
+            return null;
+        }
+        try (Resource classpath = Resource.newClassPathResource(path)) {
+            if (classpath == null || classpath.isDirectory()) {
+                return null;
+            }
+            return load(path, classpath);
+        } catch (IOException e) {
+            LOG.warn("Unable to load static resource {}", path, e);
+            return null;
+        }
+    }
+
+    private CachedResource load(String path, Resource resource) throws IOException {
+        final long length = resource.length();
+        if (length < 0 || length > maxFileBytes) {
+            return null;
+        }
+        final byte[] content;
+        try (InputStream in = resource.getInputStream()) {
+            content = in.readAllBytes();
+        }
+        final byte[] gzip = gzip(content);
+        byte[] brotli = null;
+        try (Resource precompressed = Resource.newClassPathResource(path + ".br")) {
+            if (precompressed != null && precompressed.exists() && !precompressed.isDirectory()) {
+                try (InputStream in = precompressed.getInputStream()) {
+                    brotli = in.readAllBytes();
+                }
+            }
+        }
+
+        final String etag = Hashing.murmur3_128().hashBytes(content).toString();
+        final CachedResource cached = new CachedResource(
+                MIME_TYPES.getMimeByExtension(path),
+                DateGenerator.formatDate(resource.lastModified()),
+                resource.lastModified(),
+                new Variant(null, buffer(content), '"' + etag + '"'),
+                gzip.length < content.length ? new Variant("gzip", buffer(gzip), '"' + etag + "--gzip\"") : null,
+                brotli != null ? new Variant("br", buffer(brotli), '"' + etag + "--br\"") : null);
+        cache.put(path, cached);
+        return cached;
+    }
+
+    private ByteBuffer buffer(byte[] content) {
+        if (!offHeap) {
+            return ByteBuffer.wrap(content).asReadOnlyBuffer();
+        }
+        final ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+        direct.put(content).flip();
+        return direct.asReadOnlyBuffer();
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    Meter getHits() {
+        return hits;
+    }
+
+    Meter getMisses() {
+        return misses;
+    }
+
+    Meter getEvictions() {
+        return evictions;
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    long getBytes() {
+        return cache.asMap().values().stream().mapToLong(CachedResource::weight).sum();
+    }
+
+    /**
+     * One encoding of a resource.
+     */
+    static class Variant {
+        private final String encoding;
+        private final ByteBuffer content;
+        private final String etag;
+
+        Variant(String encoding, ByteBuffer content, String etag) {
+            this.encoding = encoding;
+            this.content = content;
+            this.etag = etag;
+        }
+
+        /** @return content coding, null for identity */
+        String getEncoding() {
+            return encoding;
+        }
+
+        /** @return a read only view of the content, positioned at zero */
+        ByteBuffer getContent() {
+            return content.duplicate();
+        }
+
+        int getLength() {
+            return content.capacity();
+        }
+
+        String getEtag() {
+            return etag;
+        }
+    }
+
+    static class CachedResource {
+        private final String contentType;
+        private final String lastModified;
+        private final long lastModifiedMillis;
+        private final Variant identity;
+        private final Variant gzip;
+        private final Variant brotli;
+
+        CachedResource(String contentType, String lastModified, long lastModifiedMillis,
+                       Variant identity, Variant gzip, Variant brotli) {
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.identity = identity;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+
+        Variant getIdentity() {
+            return identity;
+        }
+
+        /** @return gzip variant, or null if compression did not pay off */
+        Variant getGzip() {
+            return gzip;
+        }
+
+        /** @return brotli variant, or null if there is no precompressed {@code .br} resource */
+        Variant getBrotli() {
+            return brotli;
+        }
+
+        boolean hasVariants() {
+            return gzip != null || brotli != null;
+        }
+
+        int weight() {
+            return identity.getLength()
+                    + (gzip == null ? 0 : gzip.getLength())
+                    + (brotli == null ? 0 : brotli.getLength());
+        }
+    }
+}
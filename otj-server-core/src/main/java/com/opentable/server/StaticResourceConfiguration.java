@@ -13,13 +13,19 @@
  */
 package com.opentable.server;
 
+import java.time.Duration;
+
 import javax.inject.Inject;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.util.resource.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -36,8 +42,55 @@ public class StaticResourceConfiguration {
     public static final String DEFAULT_PATH_NAME = "static";
     private static final String PATH_CONFIG_VALUE = "${ot.httpserver.static-path:" + DEFAULT_PATH_NAME + "}";
 
+    static final String METRIC_PREFIX = "http-server.static-cache.";
+
     private final String staticPathName;
 
+    /**
+     * cacheEnabled - serve static resources from memory, see {@link StaticResourceCache}
+     */
+    @Value("${ot.httpserver.static-cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    /**
+     * cacheMaxBytes - total size of cached content, including compressed variants
+     */
+    @Value("${ot.httpserver.static-cache.max-bytes:33554432}")
+    private long cacheMaxBytes;
+
+    /**
+     * cacheMaxFileBytes - larger files are always served by the {@link DefaultServlet}
+     */
+    @Value("${ot.httpserver.static-cache.max-file-bytes:1048576}")
+    private long cacheMaxFileBytes;
+
+    /**
+     * cacheOffHeap - keep cached content in direct buffers
+     */
+    @Value("${ot.httpserver.static-cache.off-heap:false}")
+    private boolean cacheOffHeap;
+
+    /**
+     * cacheExpireAfterAccess - evict entries not served for this long; by default only size evicts
+     */
+    @Value("${ot.httpserver.static-cache.expire-after-access:#{null}}")
+    private Duration cacheExpireAfterAccess;
+
+    /**
+     * mappedEnabled - serve large file system resources from memory mapped buffers, see {@link MappedFileResourceServlet}
+     */
+    @Value("${ot.httpserver.static-mapped.enabled:false}")
+    private boolean mappedEnabled;
+
+    /**
+     * mappedThresholdBytes - smallest file that is memory mapped
+     */
+    @Value("${ot.httpserver.static-mapped.threshold-bytes:1048576}")
+    private long mappedThresholdBytes;
+
+    @Inject
+    private ObjectProvider<MetricRegistry> metrics;
+
     @Inject
     StaticResourceConfiguration(@Value(PATH_CONFIG_VALUE) final String staticPathName) {
         this.staticPathName = staticPathName;
@@ -65,7 +118,15 @@ public class StaticResourceConfiguration {
                 return servletRegistrationBean;
             }
 
-            DefaultServlet servlet = new DefaultServlet();
+            final long threshold = mappedEnabled ? mappedThresholdBytes : Long.MAX_VALUE;
+            DefaultServlet servlet;
+            if (cacheEnabled) {
+                servlet = createCachingServlet(rsrc, threshold);
+            } else if (mappedEnabled) {
+                servlet = new MappedFileResourceServlet(threshold);
+            } else {
+                servlet = new DefaultServlet();
+            }
             ServletRegistrationBean<DefaultServlet> bean = new ServletRegistrationBean<>(servlet, staticPath() + "*");
             bean.addInitParameter("gzip", "true");
             bean.addInitParameter("etags", "true");
@@ -74,4 +135,19 @@ public class StaticResourceConfiguration {
             return bean;
         }
     }
+
+    private DefaultServlet createCachingServlet(Resource root, long mappedThreshold) {
+        final StaticResourceCache cache = new StaticResourceCache(staticPath(), cacheMaxBytes, cacheMaxFileBytes,
+                cacheOffHeap, cacheExpireAfterAccess);
+        cache.preload(root);
+        final MetricRegistry registry = metrics.getIfAvailable();
+        if (registry != null) {
+            registry.register(METRIC_PREFIX + "hits", cache.getHits());
+            registry.register(METRIC_PREFIX + "misses", cache.getMisses());
+            registry.register(METRIC_PREFIX + "evictions", cache.getEvictions());
+            registry.register(METRIC_PREFIX + "entries", (Gauge<Long>) cache::size);
+            registry.register(METRIC_PREFIX + "bytes", (Gauge<Long>) cache::getBytes);
+        }
+        return new CachingStaticResourceServlet(cache, mappedThreshold);
+    }
 }
@@ -14,8 +14,13 @@
 package com.opentable.server;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.inject.Inject;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -26,6 +31,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Condition;
@@ -60,26 +66,80 @@ public class ThreadNameFilterConfiguration {
     public static class ThreadNameFilter implements Filter {
 
         private static final Logger LOG = LoggerFactory.getLogger(ThreadNameFilterConfiguration.ThreadNameFilter.class);
+        static final int DEFAULT_MAX_URI_LENGTH = 256;
+
+        private static final ThreadLocal<ThreadNameBuilder> BUILDER = ThreadLocal.withInitial(ThreadNameBuilder::new);
+        // Thread#isVirtual(), null before JDK 19
+        private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+        private final int maxUriLength;
+        private final int sampleRate;
+        // Shared, virtual threads only ever see one request
+        private final AtomicLong count = new AtomicLong();
+
+        public ThreadNameFilter() {
+            this(DEFAULT_MAX_URI_LENGTH, 1);
+        }
+
+        /**
+         * @param maxUriLength longer request URIs are truncated in the thread name
+         * @param sampleRate only rename the thread for every Nth request; 1 renames for every request
+         */
+        @Inject
+        public ThreadNameFilter(@Value("${ot.server.thread-name-filter.max-uri-length:" + DEFAULT_MAX_URI_LENGTH + "}") int maxUriLength,
+                                @Value("${ot.server.thread-name-filter.sample-rate:1}") int sampleRate) {
+            this.maxUriLength = Math.max(0, maxUriLength);
+            this.sampleRate = Math.max(1, sampleRate);
+        }
 
         @Override
         public void init(FilterConfig filterConfig) {
-            LOG.info("Thread name tracking enabled.");
+            LOG.info("Thread name tracking enabled (maxUriLength={}, sampleRate={}).", maxUriLength, sampleRate);
         }
 
         @Override
         public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-            final HttpServletRequest req = (HttpServletRequest) request;
-            final String name = Thread.currentThread().getName();
+            if (!sample()) {
+                chain.doFilter(request, response);
+                return;
+            }
+            final Thread thread = Thread.currentThread();
+            // A virtual thread runs a single request, caching a builder on it would only add garbage
+            final ThreadNameBuilder builder = isVirtual(thread) ? new ThreadNameBuilder() : BUILDER.get();
+            final String name = thread.getName();
             try {
                 try {
-                    Thread.currentThread()
-                        .setName(String.format("%s:%s", Instant.now().toString(), req.getRequestURI()));
+                    thread.setName(builder.build(System.currentTimeMillis(),
+                        ((HttpServletRequest) request).getRequestURI(), maxUriLength));
                 } finally {
                     chain.doFilter(request, response);
                 }
             } finally {
-                Thread.currentThread().setName(name);
+                thread.setName(name);
+            }
+        }
+
+        boolean sample() {
+            return sampleRate <= 1 || count.getAndIncrement() % sampleRate == 0;
+        }
+
+        private static boolean isVirtual(Thread thread) {
+            if (IS_VIRTUAL == null) {
+                return false;
+            }
+            try {
+                return (boolean) IS_VIRTUAL.invokeExact(thread);
+            } catch (Throwable t) { // NOPMD
+                return false;
+            }
+        }
+
+        private static MethodHandle findIsVirtual() {
+            try {
+                return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
             }
         }
 
@@ -89,4 +149,40 @@ public class ThreadNameFilterConfiguration {
         }
     }
 
+    /**
+     * Builds {@code <ISO-8601 instant>:<request URI>} thread names into a reused buffer. The
+     * {@code yyyy-MM-ddTHH:mm:ss.} prefix is only formatted when the second changes, so the common case
+     * is a few appends and the final {@link StringBuilder#toString()}.
+     */
+    static final class ThreadNameBuilder {
+        private final StringBuilder name = new StringBuilder(64);
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedPrefix;
+
+        String build(long epochMillis, String uri, int maxUriLength) {
+            final long second = Math.floorDiv(epochMillis, 1000);
+            if (second != cachedSecond) {
+                final String instant = Instant.ofEpochSecond(second).toString();
+                // Drop the trailing 'Z', it's appended after the millis
+                cachedPrefix = instant.substring(0, instant.length() - 1) + '.';
+                cachedSecond = second;
+            }
+            final int millis = (int) Math.floorMod(epochMillis, 1000);
+
+            name.setLength(0);
+            name.append(cachedPrefix);
+            if (millis < 100) {
+                name.append('0');
+            }
+            if (millis < 10) {
+                name.append('0');
+            }
+            name.append(millis).append("Z:");
+            if (uri != null) {
+                name.append(uri, 0, Math.min(uri.length(), maxUriLength));
+            }
+            return name.toString();
+        }
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * TCP Vegas style concurrency limit.
+ *
+ * The limit grows while observed latency stays close to the lowest latency seen (the "no load" latency)
+ * and shrinks once the estimated queue, {@code limit * (1 - rttNoLoad / rtt)}, grows past a threshold.
+ * The no load latency is periodically reset so the limit can adapt to a dependency that got permanently slower.
+ */
+class VegasConcurrencyLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final int probeInterval;
+
+    private double estimatedLimit;
+    private long rttNoLoadNanos;
+    private int samplesSinceProbe;
+
+    private volatile int limit;
+
+    VegasConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int probeInterval) {
+        Preconditions.checkArgument(minLimit > 0, "minLimit must be positive");
+        Preconditions.checkArgument(minLimit <= maxLimit, "minLimit %s exceeds maxLimit %s", minLimit, maxLimit);
+        Preconditions.checkArgument(probeInterval > 0, "probeInterval must be positive");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.probeInterval = probeInterval;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Record a completed request.
+     * @param rttNanos how long the request took
+     * @param inFlight how many requests were in flight when it started
+     * @param dropped whether the request timed out or otherwise failed due to overload
+     * @return the new limit
+     */
+    synchronized int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return limit;
+        }
+        if (++samplesSinceProbe >= probeInterval) {
+            samplesSinceProbe = 0;
+            rttNoLoadNanos = rttNanos;
+            return limit;
+        }
+        if (rttNoLoadNanos == 0 || rttNanos < rttNoLoadNanos) {
+            rttNoLoadNanos = rttNanos;
+            return limit;
+        }
+
+        final double log = Math.max(1, Math.log10(estimatedLimit));
+        final double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit - log;
+        } else if (inFlight * 2 < estimatedLimit) {
+            // Application limited, latency tells us nothing about the limit
+            return limit;
+        } else {
+            final double queueSize = Math.ceil(estimatedLimit * (1 - (double) rttNoLoadNanos / rttNanos));
+            if (queueSize <= log) {
+                newLimit = estimatedLimit + 6 * log;
+            } else if (queueSize < 3 * log) {
+                newLimit = estimatedLimit + log;
+            } else if (queueSize > 6 * log) {
+                newLimit = estimatedLimit - log;
+            } else {
+                return limit;
+            }
+        }
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return "VegasConcurrencyLimit{limit=" + limit + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+                + ", probeInterval=" + probeInterval + '}';
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms the server up before it reports ready: synthetic requests are replayed through an in-memory
+ * {@link LocalConnector}, so they run through the real handler chain, filters, converters and error handling,
+ * until the median latency of consecutive windows stops moving or the limits are reached. While warming up,
+ * requests arriving on the other connectors are optionally answered with 503, except on management connectors, so
+ * health checks and metrics keep working.
+ */
+@ManagedObject("Replays synthetic requests before the server is ready")
+public class WarmupHandler extends HandlerWrapper {
+    private static final Logger LOG = LoggerFactory.getLogger(WarmupHandler.class);
+
+    static final String CONNECTOR_NAME = "warmup";
+
+    private final Map<String, WarmupRequestConfig> requests;
+    private final int window;
+    private final double tolerance;
+    private final int maxIterations;
+    private final Duration timeout;
+    private final boolean holdTraffic;
+    private final Set<String> managementConnectors;
+    private final Map<String, Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean warming = true;
+    private volatile long durationMillis = -1;
+
+    WarmupHandler(Map<String, WarmupRequestConfig> requests, int window, double tolerance, int maxIterations,
+                  Duration timeout, boolean holdTraffic, Set<String> managementConnectors) {
+        this.requests = requests;
+        this.window = Math.max(1, window);
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.timeout = timeout;
+        this.holdTraffic = holdTraffic;
+        this.managementConnectors = managementConnectors;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (warming && holdTraffic && !isWarmupRequest(baseRequest)
+                && !ManagementConnectors.isManagement(baseRequest, managementConnectors)) {
+            response.setHeader(HttpHeader.RETRY_AFTER.asString(), "1");
+            response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Warming up");
+            baseRequest.setHandled(true);
+            return;
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    private static boolean isWarmupRequest(Request request) {
+        final Connector connector = request.getHttpChannel().getConnector();
+        return connector instanceof LocalConnector && CONNECTOR_NAME.equals(connector.getName());
+    }
+
+    /**
+     * Replays every request until it converges, then lets traffic in. Blocks until done; only the first call warms up.
+     */
+    void warmUp() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final long deadline = start + timeout.toNanos();
+        final LocalConnector connector = new LocalConnector(getServer());
+        connector.setName(CONNECTOR_NAME);
+        try {
+            getServer().addConnector(connector);
+            connector.start();
+            for (Map.Entry<String, WarmupRequestConfig> e : requests.entrySet()) {
+                final Result result = replay(connector, e.getKey(), e.getValue(), deadline);
+                results.put(e.getKey(), result);
+                LOG.info("Warm-up {} {} {}: status {}, {} iterations, {} at {} us", e.getValue().getMethod(), e.getValue().getPath(),
+                        e.getKey(), result.status, result.iterations, result.converged ? "converged" : "did not converge",
+                        TimeUnit.NANOSECONDS.toMicros(result.medianNanos));
+            }
+        } catch (Exception e) { // NOPMD
+            LOG.warn("Warm-up failed, continuing without it", e);
+        } finally {
+            try {
+                connector.stop();
+            } catch (Exception e) { // NOPMD
+                LOG.debug("Could not stop warm-up connector", e);
+            }
+            getServer().removeConnector(connector);
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            warming = false;
+            LOG.info("Warmed up {} requests in {} ms", results.size(), durationMillis);
+        }
+    }
+
+    private Result replay(LocalConnector connector, String name, WarmupRequestConfig config, long deadline) throws Exception {
+        final byte[] raw = rawRequest(config);
+        final long[] samples = new long[window];
+        long previous = -1;
+        long median = -1;
+        int iterations = 0;
+        int status = -1;
+        while (iterations < maxIterations && System.nanoTime() < deadline) {
+            for (int i = 0; i < window; i++) {
+                final long begin = System.nanoTime();
+                final ByteBuffer response = connector.getResponse(ByteBuffer.wrap(raw),
+                        Math.max(1, deadline - begin), TimeUnit.NANOSECONDS);
+                samples[i] = System.nanoTime() - begin;
+                if (response == null) {
+                    LOG.warn("Warm-up request {} timed out", name);
+                    return new Result(status, iterations, median, false);
+                }
+                status = status(response);
+                iterations++;
+            }
+            Arrays.sort(samples);
+            median = samples[window / 2];
+            if (previous > 0 && Math.abs(median - previous) <= tolerance * previous) {
+                return new Result(status, iterations, median, true);
+            }
+            previous = median;
+        }
+        return new Result(status, iterations, median, false);
+    }
+
+    private static byte[] rawRequest(WarmupRequestConfig config) {
+        final byte[] body = config.getBody() == null ? new byte[0] : config.getBody().getBytes(StandardCharsets.UTF_8);
+        final StringBuilder head = new StringBuilder()
+                .append(config.getMethod()).append(' ').append(config.getPath()).append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n")
+                .append("Connection: close\r\n");
+        if (config.getContentType() != null) {
+            head.append("Content-Type: ").append(config.getContentType()).append("\r\n");
+        }
+        if (body.length > 0) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("\r\n");
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        final byte[] raw = Arrays.copyOf(headBytes, headBytes.length + body.length);
+        System.arraycopy(body, 0, raw, headBytes.length, body.length);
+        return raw;
+    }
+
+    private static int status(ByteBuffer response) {
+        // "HTTP/1.1 200 ..."
+        if (response.remaining() < 12) {
+            return -1;
+        }
+        final byte[] line = new byte[12];
+        response.duplicate().get(line);
+        try {
+            return Integer.parseInt(new String(line, 9, 3, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @ManagedAttribute("Whether the warm-up is still running")
+    public boolean isWarming() {
+        return warming;
+    }
+
+    @ManagedAttribute("Duration of the warm-up in milliseconds, -1 while running")
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    Result getResult(String name) {
+        return results.get(name);
+    }
+
+    static final class Result {
+        private final int status;
+        private final int iterations;
+        private final long medianNanos;
+        private final boolean converged;
+
+        Result(int status, int iterations, long medianNanos, boolean converged) {
+            this.status = status;
+            this.iterations = iterations;
+            this.medianNanos = medianNanos;
+            this.converged = converged;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        int getIterations() {
+            return iterations;
+        }
+
+        long getMedianNanos() {
+            return medianNanos;
+        }
+
+        boolean isConverged() {
+            return converged;
+        }
+    }
+}
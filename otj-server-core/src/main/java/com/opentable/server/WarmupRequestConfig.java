@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+/**
+ * A synthetic request replayed during warm-up, bound from {@code ot.server.warmup.request.<name>}.
+ */
+public interface WarmupRequestConfig {
+    default String getMethod() {
+        return "GET";
+    }
+
+    default String getPath() {
+        return "/";
+    }
+
+    /**
+     * Content type of the body, e.g. {@code application/json}; no header is sent when null.
+     */
+    default String getContentType() {
+        return null;
+    }
+
+    default String getBody() {
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.admission-control.enabled=true",
+        "ot.server.admission-control.initial-limit=10",
+})
+public class AdmissionControlTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    // Test the handler wraps the chain, admits requests and exports its state
+    @Test
+    public void test() {
+        final AdmissionControlHandler handler = server.getBean(AdmissionControlHandler.class);
+        Assert.assertNotNull(handler);
+        Assert.assertSame(handler, server.getHandler());
+
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, client.getForObject(request.of("/hello"), String.class));
+        Assert.assertEquals(0, handler.getInFlight());
+        Assert.assertEquals(0, handler.getRejected());
+        Assert.assertTrue(metrics.getGauges().containsKey(EmbeddedJettyAdmissionControl.METRIC_PREFIX + "limit"));
+        Assert.assertEquals(0, metrics.getMeters().get(EmbeddedJettyAdmissionControl.METRIC_PREFIX + "rejected").getCount());
+    }
+
+    // The limit grows at steady latency and backs off once latency climbs
+    @Test
+    public void vegas() {
+        final VegasConcurrencyLimit limit = new VegasConcurrencyLimit(10, 1, 100, 1000);
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(1_000_000, limit.getLimit(), false);
+        }
+        final int grown = limit.getLimit();
+        Assert.assertTrue(grown > 10);
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(10_000_000, limit.getLimit(), false);
+        }
+        Assert.assertTrue(limit.getLimit() < grown);
+    }
+}
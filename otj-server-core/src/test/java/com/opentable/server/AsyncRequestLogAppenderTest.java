@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import com.opentable.server.AsyncRequestLogAppender.OverflowPolicy;
+
+// Events logged through an installed AsyncRequestLogAppender still reach the original appenders
+public class AsyncRequestLogAppenderTest {
+
+    private Logger logger;
+    private ListAppender<ILoggingEvent> target;
+
+    @Before
+    public void before() {
+        final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        logger = loggerContext.getLogger(AsyncRequestLogAppenderTest.class.getName() + ".requests");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        target = new ListAppender<>();
+        target.setName("list");
+        target.setContext(loggerContext);
+        target.start();
+        logger.addAppender(target);
+    }
+
+    @After
+    public void after() {
+        logger.detachAppender(target);
+    }
+
+    @Test(timeout = 10_000)
+    public void testDelivery() throws InterruptedException {
+        final AsyncRequestLogAppender appender = new AsyncRequestLogAppender(16, 4, OverflowPolicy.BLOCK);
+        appender.install(logger);
+        Assert.assertNull(logger.getAppender(target.getName()));
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("request {}", i);
+        }
+        while (appender.getWritten() < 100) {
+            Thread.sleep(10);
+        }
+        appender.uninstall();
+
+        Assert.assertEquals(100, target.list.size());
+        Assert.assertEquals("request 99", target.list.get(99).getFormattedMessage());
+        Assert.assertEquals(0, appender.getDropped());
+        Assert.assertEquals(100, appender.getWrittenMeter().getCount());
+        Assert.assertSame(target, logger.iteratorForAppenders().next());
+    }
+
+    @Test
+    public void testRingBuffer() {
+        final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(4));
+        Assert.assertEquals(4, buffer.size());
+        Assert.assertEquals(Integer.valueOf(0), buffer.poll());
+        Assert.assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        Assert.assertNull(buffer.poll());
+    }
+}
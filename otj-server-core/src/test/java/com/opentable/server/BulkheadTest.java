@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.bulkhead.enabled=true",
+        "ot.server.bulkhead.partitions=slow",
+        "ot.server.bulkhead.partition.slow.paths=/sleep",
+        "ot.server.bulkhead.partition.slow.max-concurrent=1",
+        "ot.server.bulkhead.partition.slow.max-queued=1",
+})
+// A saturated partition parks one request, rejects the next, and leaves other routes alone
+public class BulkheadTest {
+
+    @Inject
+    private BulkheadHandler bulkhead;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+    // The common pool may have a single thread
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10_000)
+    public void test() throws InterruptedException {
+        final BulkheadHandler.Partition slow = bulkhead.getPartitions().get("slow");
+
+        final CompletableFuture<HttpStatus> running = CompletableFuture.supplyAsync(() -> get("/sleep?millis=1000"), executor);
+        while (slow.getActive() == 0) {
+            Thread.sleep(10);
+        }
+        final CompletableFuture<HttpStatus> parked = CompletableFuture.supplyAsync(() -> get("/sleep?millis=10"), executor);
+        while (slow.getQueued() == 0) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, get("/sleep?millis=10"));
+        Assert.assertEquals(HttpStatus.OK, get("/hello"));
+
+        Assert.assertEquals(HttpStatus.OK, running.join());
+        Assert.assertEquals(HttpStatus.OK, parked.join());
+        Assert.assertEquals(0, slow.getActive());
+        Assert.assertEquals(0, slow.getQueued());
+        Assert.assertEquals(1, metrics.getMeters().get(EmbeddedJettyBulkhead.METRIC_PREFIX + "slow.rejected").getCount());
+        Assert.assertEquals(0, metrics.getMeters().get(EmbeddedJettyBulkhead.METRIC_PREFIX + "slow.timed-out").getCount());
+    }
+
+    private HttpStatus get(String path) {
+        return client.getForEntity(request.of("/").resolve(path), String.class).getStatusCode();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+public class ClassDataSharingTest {
+
+    @After
+    public void after() {
+        System.clearProperty(ClassDataSharing.MODE);
+    }
+
+    // Tests run without -XX:SharedArchiveFile
+    @Test
+    public void noArchive() {
+        Assert.assertNull(ClassDataSharing.getArchive());
+        ClassDataSharing.install(new SpringApplicationBuilder(TestServerConfiguration.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownMode() {
+        System.setProperty(ClassDataSharing.MODE, "dump");
+        ClassDataSharing.install(new SpringApplicationBuilder(TestServerConfiguration.class));
+    }
+}
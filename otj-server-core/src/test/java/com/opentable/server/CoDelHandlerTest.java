@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Shedding starts once the minimum queue delay stays above target for an interval, and stops after a good interval
+public class CoDelHandlerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void test() {
+        final CoDelHandler coDel = new CoDelHandler(Duration.ofMillis(5), Duration.ofMillis(100), Duration.ofSeconds(1),
+                Collections.emptySet());
+        final long start = System.nanoTime();
+
+        // Not overloaded: only waits beyond the interval are shed
+        Assert.assertFalse(coDel.isOverloaded());
+        Assert.assertFalse(coDel.shouldShed(50 * MS));
+        Assert.assertTrue(coDel.shouldShed(150 * MS));
+        Assert.assertFalse(coDel.shouldShed(-1));
+
+        // A burst with one short wait in the interval is not a standing queue
+        coDel.onDequeue(start + 10 * MS, 40 * MS);
+        coDel.onDequeue(start + 20 * MS, 1 * MS);
+        coDel.onDequeue(start + 110 * MS, 40 * MS);
+        Assert.assertFalse(coDel.isOverloaded());
+
+        // Every wait above target for the next interval
+        coDel.onDequeue(start + 150 * MS, 20 * MS);
+        // Requests without a timestamp are not samples
+        coDel.onDequeue(start + 160 * MS, -1);
+        coDel.onDequeue(start + 220 * MS, 10 * MS);
+        Assert.assertTrue(coDel.isOverloaded());
+        Assert.assertTrue(coDel.isLowOnResources());
+        Assert.assertEquals(1, coDel.getOverloads());
+        Assert.assertEquals(10_000, coDel.getLastMinMicros());
+        Assert.assertTrue(coDel.shouldShed(10 * MS));
+        Assert.assertFalse(coDel.shouldShed(1 * MS));
+
+        // Recovers once an interval has a wait under target
+        coDel.onDequeue(start + 250 * MS, 1 * MS);
+        coDel.onDequeue(start + 330 * MS, 30 * MS);
+        Assert.assertFalse(coDel.isOverloaded());
+        Assert.assertFalse(coDel.shouldShed(10 * MS));
+    }
+}
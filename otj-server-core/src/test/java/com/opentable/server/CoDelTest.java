@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.max-threads=13",
+        "ot.server.low-resource-monitor.codel.enabled=true",
+})
+// Requests queued behind a saturated worker pool wait longer than the interval and are shed
+public class CoDelTest {
+
+    private static final int REQUESTS = 60;
+
+    @Inject
+    private CoDelHandler coDel;
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 30_000)
+    public void testShedsWhenSaturated() {
+        Assert.assertEquals(200, get(request.of("/hello")).join().intValue());
+        Assert.assertEquals(0, coDel.getShed());
+
+        final URI sleep = URI.create(request.of("/sleep") + "?millis=300");
+        final List<CompletableFuture<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(get(sleep));
+        }
+        final long unavailable = responses.stream().map(CompletableFuture::join).filter(status -> status == 503).count();
+
+        Assert.assertTrue("expected some requests to be shed", coDel.getShed() > 0);
+        Assert.assertTrue("expected shed requests to get a 503", unavailable > 0);
+        Assert.assertEquals(coDel.getShed(), metrics.getMeters().get(EmbeddedJettyCoDel.METRIC_PREFIX + "shed").getCount());
+    }
+
+    private CompletableFuture<Integer> get(URI uri) {
+        // A connection per request, so they all reach the server at once
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+        return client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+}
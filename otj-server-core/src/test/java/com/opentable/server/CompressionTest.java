@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.compression.enabled=true",
+        "ot.server.compression.min-size=1",
+})
+// Responses are gzipped when the client accepts it, and the deflater pool counts the bytes
+public class CompressionTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void test() throws IOException, InterruptedException {
+        Assert.assertNotNull(server.getChildHandlerByClass(CompressionHandler.class));
+
+        final HttpResponse<byte[]> plain = get(HttpRequest.newBuilder(request.of("/hello")));
+        Assert.assertFalse(plain.headers().firstValue("Content-Encoding").isPresent());
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, new String(plain.body(), StandardCharsets.UTF_8));
+
+        final HttpResponse<byte[]> gzip = get(HttpRequest.newBuilder(request.of("/hello")).header("Accept-Encoding", "gzip"));
+        Assert.assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // The deflater goes back to the pool once the last write completed, which may be after the client saw it
+        final long deadline = System.nanoTime() + 5_000_000_000L;
+        while (bytesIn() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals((long) TestServerConfiguration.HELLO_WORLD.length(), bytesIn());
+    }
+
+    private long bytesIn() {
+        return metrics.getMeters().get(EmbeddedJettyCompression.METRIC_PREFIX + "bytes-in").getCount();
+    }
+
+    private HttpResponse<byte[]> get(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
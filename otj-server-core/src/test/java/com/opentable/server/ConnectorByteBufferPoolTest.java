@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.connector.default-http.bufferPool=logarithmic",
+        "ot.httpserver.connector.default-http.bufferPoolMaxCapacity=32768",
+        "ot.httpserver.connector.default-http.bufferPoolMaxBucketSize=16",
+        "ot.server.buffer-pool.per-bucket-metrics=true",
+})
+public class ConnectorByteBufferPoolTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    // The connector gets its own pool, which counts allocations and is exported in total and per bucket
+    @Test
+    public void test() {
+        final Connector connector = server.getConnectors()[0];
+        Assert.assertTrue(connector.getByteBufferPool() instanceof ConnectorByteBufferPool.Logarithmic);
+        final ConnectorByteBufferPool pool = (ConnectorByteBufferPool) connector.getByteBufferPool();
+        Assert.assertEquals(16, pool.getBucketCapacities().length);
+        Assert.assertEquals(32768, pool.getBucketCapacities()[15]);
+
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, client.getForObject(request.of("/hello"), String.class));
+
+        long misses = 0;
+        for (int i = 0; i <= pool.getBucketCapacities().length; i++) {
+            misses += pool.getMisses(i, false) + pool.getMisses(i, true);
+        }
+        Assert.assertTrue(misses > 0);
+        final long total = (Long) metrics.getGauges().get(EmbeddedJettyBufferPoolMetrics.METRIC_PREFIX + "default-http.heap.misses").getValue()
+                + (Long) metrics.getGauges().get(EmbeddedJettyBufferPoolMetrics.METRIC_PREFIX + "default-http.direct.misses").getValue();
+        Assert.assertTrue(total >= misses);
+        Assert.assertNotNull(metrics.getGauges().get(EmbeddedJettyBufferPoolMetrics.METRIC_PREFIX + "default-http.heap.32768.pooled"));
+        Assert.assertNotNull(metrics.getGauges().get(EmbeddedJettyBufferPoolMetrics.METRIC_PREFIX + "default-http.direct.oversize.misses"));
+    }
+
+    @Test
+    public void testArray() {
+        final ConnectorByteBufferPool pool = ConnectorByteBufferPool.create(new ServerConnectorConfig() {
+            @Override
+            public String getBufferPool() {
+                return "array";
+            }
+
+            @Override
+            public int getBufferPoolFactor() {
+                return 4096;
+            }
+        });
+        Assert.assertArrayEquals(new int[] {4096, 8192, 12288, 16384, 20480, 24576, 28672, 32768,
+                36864, 40960, 45056, 49152, 53248, 57344, 61440, 65536}, pool.getBucketCapacities());
+
+        pool.release(pool.acquire(5000, true));
+        Assert.assertEquals(1, pool.getMisses(1, true));
+        Assert.assertEquals(1, pool.getPooled(1, true));
+        pool.acquire(5000, true);
+        Assert.assertEquals(1, pool.getMisses(1, true));
+        Assert.assertNull(ConnectorByteBufferPool.create(new ServerConnectorConfig() { }));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.deadline.enabled=true",
+})
+// Requests past their deadline are dropped with a 504, the others see their remaining budget
+public class DeadlineTest {
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    @Test
+    public void test() {
+        final ResponseEntity<String> withBudget = get("5000");
+        Assert.assertEquals(HttpStatus.OK, withBudget.getStatusCode());
+        final long remaining = Long.parseLong(withBudget.getBody());
+        Assert.assertTrue(withBudget.getBody(), remaining > 0 && remaining <= 5000);
+
+        Assert.assertEquals("none", get(null).getBody());
+        Assert.assertEquals("none", get("soon").getBody());
+
+        Assert.assertEquals(HttpStatus.GATEWAY_TIMEOUT, get("-1").getStatusCode());
+        Assert.assertEquals(1, metrics.getMeters().get(EmbeddedJettyDeadline.METRIC_PREFIX + "dropped").getCount());
+        Assert.assertEquals(2, metrics.getMeters().get(EmbeddedJettyDeadline.METRIC_PREFIX + "with-deadline").getCount());
+        Assert.assertEquals(1, metrics.getMeters().get(EmbeddedJettyDeadline.METRIC_PREFIX + "malformed").getCount());
+    }
+
+    private ResponseEntity<String> get(String deadline) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (deadline != null) {
+            headers.add("X-Request-Deadline", deadline);
+        }
+        return client.exchange(request.of("/deadline"), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
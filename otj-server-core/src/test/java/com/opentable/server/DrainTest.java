@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.drain.enabled=true",
+        "ot.httpserver.drain.timeout=PT10S",
+})
+@DirtiesContext
+// Draining stops accepting, lets the in-flight request finish with Connection: close, and records how long it took
+public class DrainTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private HttpServerInfo info;
+
+    @Inject
+    private DrainHandler drain;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Test
+    public void test() throws IOException, InterruptedException {
+        final StatisticsHandler stats = server.getChildHandlerByClass(StatisticsHandler.class);
+        try (Socket socket = new Socket("localhost", info.getPort())) {
+            socket.getOutputStream().write("GET /sleep?millis=500 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            while (stats.getRequestsActive() == 0) {
+                Thread.sleep(10);
+            }
+
+            drain.drain();
+            Assert.assertTrue(drain.isDraining());
+            Assert.assertEquals(0, drain.getCutOff());
+            Assert.assertTrue(drain.getDrainMillis() >= 0);
+            Assert.assertEquals(0, stats.getRequestsActive());
+
+            // The server closes the connection after the response, so this does not block
+            final String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            Assert.assertTrue(response, response.startsWith("HTTP/1.1 200"));
+            Assert.assertTrue(response, response.contains("Connection: close"));
+            Assert.assertTrue(response, response.endsWith(TestServerConfiguration.HELLO_WORLD));
+        }
+
+        try (Socket refused = new Socket("localhost", info.getPort())) {
+            Assert.fail("Connector still accepts " + refused);
+        } catch (IOException expected) {
+            // not accepting any more
+        }
+        Assert.assertEquals(0, metrics.getCounters().get(EmbeddedJettyDrain.METRIC_PREFIX + "cut-off").getCount());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+
+import javax.inject.Inject;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.connector.default-http.protocol=h2c",
+        "ot.httpserver.connector.default-http.http2MaxConcurrentStreams=7",
+        "ot.httpserver.connector.default-http.http2InitialStreamRecvWindow=65536",
+        "ot.httpserver.active-connectors=default-http,secure",
+        "ot.httpserver.connector.secure.protocol=h2",
+        "ot.httpserver.connector.secure.keystore=src/test/resources/tls/keystore.p12",
+})
+public class Http2ConnectorTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Inject
+    private HttpServerInfo info;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    // Test that the h2c connector speaks both protocols and picked up the tuning knobs
+    @Test
+    public void test() {
+        final Connector connector = server.getConnectors()[0];
+        Assert.assertTrue(connector.getProtocols().contains("h2c"));
+        Assert.assertTrue(connector.getProtocols().contains("HTTP/1.1"));
+
+        final HTTP2CServerConnectionFactory h2c = connector.getConnectionFactory(HTTP2CServerConnectionFactory.class);
+        Assert.assertEquals(7, h2c.getMaxConcurrentStreams());
+        Assert.assertEquals(65536, h2c.getInitialStreamRecvWindow());
+    }
+
+    // HTTP/1.1 clients still work on an h2c connector
+    @Test
+    public void http11Fallback() {
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, client.getForObject(request.of("/hello"), String.class));
+    }
+
+    // An HTTP/2 client upgrades a plaintext connection to h2c
+    @Test
+    public void h2cRoundTrip() throws IOException, InterruptedException {
+        final HttpClient http2 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        assertHttp2(http2, request.of("/hello"));
+    }
+
+    // An HTTP/2 client negotiates h2 over TLS with ALPN
+    @Test
+    public void h2RoundTrip() throws IOException, InterruptedException, GeneralSecurityException {
+        final SSLContext tls = SSLContext.getInstance("TLS");
+        tls.init(null, new TrustManager[] {new TrustAllManager()}, null);
+        final HttpClient http2 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).sslContext(tls).build();
+        assertHttp2(http2, URI.create("https://localhost:" + info.getConnectors().get("secure").getPort() + "/hello"));
+    }
+
+    private static void assertHttp2(HttpClient http2, URI uri) throws IOException, InterruptedException {
+        // Twice, so the second request also runs on the established HTTP/2 connection
+        for (int i = 0; i < 2; i++) {
+            final HttpResponse<String> response = http2.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Assert.assertEquals(200, response.statusCode());
+            Assert.assertEquals(HttpClient.Version.HTTP_2, response.version());
+            Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, response.body());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+
+import javax.inject.Inject;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.connector.default-http.protocol=https",
+        "ot.httpserver.connector.default-http.keystore=" + KeyStoreReloadTest.KEYSTORE,
+        "ot.server.keystore-reload.enabled=true",
+        "ot.server.keystore-reload.interval=PT1H",
+})
+// A rotated keystore is served to new connections, a broken one is rejected and the old one kept
+public class KeyStoreReloadTest {
+    static final String KEYSTORE = "target/keystore-reload-test/keystore.p12";
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private HttpServerInfo info;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @BeforeClass
+    public static void copyKeyStore() throws IOException {
+        Files.createDirectories(Paths.get(KEYSTORE).getParent());
+        Files.copy(Paths.get("src/test/resources/tls/keystore.p12"), Paths.get(KEYSTORE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void test() throws IOException, GeneralSecurityException {
+        final KeyStoreReloader reloader = server.getBean(KeyStoreReloader.class);
+        Assert.assertNotNull(reloader);
+        Assert.assertEquals("CN=localhost", serverCertificate().getSubjectX500Principal().getName());
+        Assert.assertTrue(reloader.getNotAfter() > System.currentTimeMillis());
+
+        final Path keystore = Paths.get(KEYSTORE);
+        Files.copy(Paths.get("src/test/resources/tls/keystore-rotated.p12"), keystore, StandardCopyOption.REPLACE_EXISTING);
+        reloader.reload();
+        Assert.assertEquals(1, reloader.getSuccesses());
+        Assert.assertEquals("CN=rotated", serverCertificate().getSubjectX500Principal().getName());
+
+        Files.write(keystore, "not a keystore".getBytes(StandardCharsets.US_ASCII));
+        reloader.reload();
+        Assert.assertEquals(1, reloader.getFailures());
+        Assert.assertEquals("CN=rotated", serverCertificate().getSubjectX500Principal().getName());
+
+        final String prefix = EmbeddedJettyKeyStoreReload.METRIC_PREFIX + EmbeddedJettyBase.DEFAULT_CONNECTOR_NAME + '.';
+        Assert.assertEquals(1, metrics.getCounters().get(prefix + "successes").getCount());
+        Assert.assertEquals(1, metrics.getCounters().get(prefix + "failures").getCount());
+    }
+
+    private X509Certificate serverCertificate() throws IOException, GeneralSecurityException {
+        // A fresh client context each time, so nothing is resumed
+        final SSLContext client = SSLContext.getInstance("TLS");
+        client.init(null, new TrustManager[] {new TrustAllManager()}, null);
+        try (SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket("localhost", info.getPort())) {
+            socket.startHandshake();
+            return (X509Certificate) socket.getSession().getPeerCertificates()[0];
+        }
+    }
+}
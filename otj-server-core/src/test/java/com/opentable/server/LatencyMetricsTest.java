@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.latency.enabled=true",
+        "ot.server.latency.window=PT0S",
+})
+// Requests are timed per connector and route, and the worker pool records queue wait
+public class LatencyMetricsTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    @Test
+    public void test() {
+        Assert.assertTrue(server.getThreadPool() instanceof InstrumentedQueuedThreadPool);
+        Assert.assertNotNull(server.getChildHandlerByClass(LatencyHandler.class));
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, client.getForObject(request.of("/hello"), String.class));
+        }
+
+        final Timer connector = metrics.getTimers().get(EmbeddedJettyLatencyMetrics.METRIC_PREFIX + "connector.default-http");
+        Assert.assertNotNull(connector);
+        Assert.assertEquals(5, connector.getCount());
+        Assert.assertTrue(connector.getSnapshot().get99thPercentile() > 0);
+        // Plain servlets have no route template
+        Assert.assertEquals(5, metrics.getTimers().get(EmbeddedJettyLatencyMetrics.METRIC_PREFIX + "route." + LatencyHandler.UNMATCHED).getCount());
+        Assert.assertTrue(metrics.getTimers().get(EmbeddedJettyLatencyMetrics.METRIC_PREFIX + LatencyHandler.POOL_JOB_WAIT).getCount() > 0);
+    }
+}
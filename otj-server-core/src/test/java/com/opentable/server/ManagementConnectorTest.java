@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.active-connectors=default-http,management",
+        "ot.httpserver.connector.management.management=true",
+        "ot.httpserver.connector.management.reservedThreads=2",
+        "ot.httpserver.max-threads=13",
+        "ot.server.thread-name-filter=false",
+})
+// The management connector handles requests on its own small pool, business connectors on the server's
+public class ManagementConnectorTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private HttpServerInfo info;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test() {
+        final ServerConnector management = (ServerConnector) server.getConnectors()[1];
+        Assert.assertEquals("management", management.getName());
+        Assert.assertNotSame(server.getThreadPool(), management.getExecutor());
+        Assert.assertEquals(4, ((QueuedThreadPool) management.getExecutor()).getMaxThreads());
+        Assert.assertEquals(1, management.getAcceptors());
+
+        Assert.assertTrue(threadName("management").startsWith("management-qtp"));
+        Assert.assertFalse(threadName("default-http").startsWith("management-qtp"));
+    }
+
+    // Business requests that fill the server's pool and its queue don't hold up the management connector
+    @Test(timeout = 60_000)
+    public void testSaturated() throws InterruptedException {
+        final QueuedThreadPool pool = (QueuedThreadPool) server.getThreadPool();
+        final int businessPort = info.getConnectors().get("default-http").getPort();
+        final URI sleep = URI.create("http://localhost:" + businessPort + "/sleep?millis=2000");
+        final List<CompletableFuture<Integer>> sleeping = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            // A client per request, so each gets its own connection
+            final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+            sleeping.add(http.sendAsync(HttpRequest.newBuilder(sleep).build(), HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode));
+        }
+        while (pool.getQueueSize() == 0) {
+            Thread.sleep(10);
+        }
+
+        final long start = System.nanoTime();
+        final int managementPort = info.getConnectors().get("management").getPort();
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD,
+                client.getForObject("http://localhost:" + managementPort + "/hello", String.class));
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("management request took " + millis + " ms", millis < 1000);
+        Assert.assertTrue("pool should still be saturated", pool.getQueueSize() > 0);
+
+        sleeping.forEach(response -> Assert.assertEquals(200, response.join().intValue()));
+    }
+
+    private String threadName(String connector) {
+        final int port = info.getConnectors().get(connector).getPort();
+        return client.getForObject("http://localhost:" + port + "/threadname", String.class);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.static-mapped.enabled=true",
+        "ot.httpserver.static-mapped.threshold-bytes=1024",
+})
+// Test resources are plain files, so test.css is above the threshold and served mapped, whole or by range
+public class MappedFileResourceTest {
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Inject
+    private ServletRegistrationBean<DefaultServlet> staticResourceServlet;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void test() throws IOException, InterruptedException {
+        final byte[] expected;
+        try (InputStream in = getClass().getResourceAsStream("/static/test.css")) {
+            expected = in.readAllBytes();
+        }
+
+        final MappedFileResourceServlet servlet = (MappedFileResourceServlet) staticResourceServlet.getServlet();
+        final long served = servlet.getServed();
+
+        final HttpResponse<byte[]> whole = get(HttpRequest.newBuilder(request.of("/static/test.css")));
+        Assert.assertEquals(200, whole.statusCode());
+        Assert.assertArrayEquals(expected, whole.body());
+        Assert.assertEquals("bytes", whole.headers().firstValue("Accept-Ranges").orElse(null));
+
+        final HttpResponse<byte[]> range = get(HttpRequest.newBuilder(request.of("/static/test.css"))
+                .header("Range", "bytes=10-19"));
+        Assert.assertEquals(206, range.statusCode());
+        Assert.assertEquals("bytes 10-19/" + expected.length, range.headers().firstValue("Content-Range").orElse(null));
+        Assert.assertArrayEquals(Arrays.copyOfRange(expected, 10, 20), range.body());
+
+        final HttpResponse<byte[]> revalidated = get(HttpRequest.newBuilder(request.of("/static/test.css"))
+                .header("If-None-Match", whole.headers().firstValue("ETag").orElseThrow()));
+        Assert.assertEquals(304, revalidated.statusCode());
+
+        // All three went through the mapped path rather than falling back to the DefaultServlet
+        Assert.assertEquals(served + 3, servlet.getServed());
+    }
+
+    private HttpResponse<byte[]> get(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return client.send(builder.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
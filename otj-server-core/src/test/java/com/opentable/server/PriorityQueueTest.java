@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.priority-queue.enabled=true",
+        "ot.server.priority-queue.max-concurrent=1",
+        "ot.server.priority-queue.aging=PT10S",
+        "ot.server.priority-queue.classes=critical",
+        "ot.server.priority-queue.class.critical.priority=10",
+        "ot.server.priority-queue.class.critical.header=X-Priority=critical",
+        "ot.server.priority-queue.class.default.max-wait-millis=5000",
+        "ot.server.priority-queue.class.critical.max-wait-millis=5000",
+})
+// With the pool busy, a critical request that arrived later overtakes a waiting default one
+public class PriorityQueueTest {
+
+    @Inject
+    private PriorityQueueHandler handler;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+    // The common pool may have a single thread
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10_000)
+    public void test() throws InterruptedException {
+        final CompletableFuture<Long> running = CompletableFuture.supplyAsync(() -> get("/sleep?millis=500", null), executor);
+        while (handler.getActive() == 0) {
+            Thread.sleep(10);
+        }
+        final CompletableFuture<Long> normal = CompletableFuture.supplyAsync(() -> get("/sleep?millis=200", null), executor);
+        while (handler.getQueued() < 1) {
+            Thread.sleep(10);
+        }
+        final CompletableFuture<Long> critical = CompletableFuture.supplyAsync(() -> get("/sleep?millis=200", "critical"), executor);
+        while (handler.getQueued() < 2) {
+            Thread.sleep(10);
+        }
+
+        running.join();
+        Assert.assertTrue("critical request should finish first", critical.join() < normal.join());
+        Assert.assertEquals(0, handler.getQueued());
+        Assert.assertEquals(1, metrics.getTimers().get(EmbeddedJettyPriorityQueue.METRIC_PREFIX + "critical.queue-wait").getCount());
+        Assert.assertEquals(0, metrics.getMeters().get(EmbeddedJettyPriorityQueue.METRIC_PREFIX + "default.shed").getCount());
+    }
+
+    // A suspended request holds no thread, so it gives its slot back instead of blocking the queue
+    @Test(timeout = 10_000)
+    public void testAsync() throws InterruptedException {
+        final CompletableFuture<Long> suspended = CompletableFuture.supplyAsync(() -> get("/async-sleep?millis=1000", null), executor);
+        while (TestServerConfiguration.AsyncSleepServlet.SUSPENDED.get() == 0) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, handler.getActive());
+        Assert.assertTrue("short request should not wait for the suspended one", get("/sleep?millis=10", null) < suspended.join());
+    }
+
+    // Returns when the response arrived
+    private long get(String path, String priority) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (priority != null) {
+            headers.add("X-Priority", priority);
+        }
+        final HttpStatus status = client.exchange(request.of("/").resolve(path), HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getStatusCode();
+        Assert.assertEquals(HttpStatus.OK, status);
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Unknown or unusable providers fall back to the JDK instead of failing the connector
+public class SslProvidersTest {
+
+    @Test
+    public void jdk() {
+        Assert.assertNull(SslProviders.resolve("test", null));
+        Assert.assertNull(SslProviders.resolve("test", " JDK "));
+    }
+
+    @Test
+    public void registered() {
+        Assert.assertEquals("SunJSSE", SslProviders.resolve("test", "SunJSSE"));
+    }
+
+    @Test
+    public void fallback() {
+        // Not on the test classpath
+        Assert.assertNull(SslProviders.resolve("test", SslProviders.CONSCRYPT));
+        Assert.assertNull(SslProviders.resolve("test", "com.example.NoSuchProvider"));
+        // Registered, but no TLS
+        Assert.assertNull(SslProviders.resolve("test", "SUN"));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.fast-startup=true",
+})
+// Background setup steps are timed and reported alongside the context refresh
+public class StartupPhasesTest {
+
+    @Inject
+    private StartupPhases startupPhases;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Test
+    public void test() throws InterruptedException {
+        Assert.assertTrue(startupPhases.isFastStartup());
+        Assert.assertTrue(startupPhases.getPhases().containsKey("context"));
+        Assert.assertTrue(startupPhases.getPhases().containsKey("jvm"));
+
+        final long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!startupPhases.getPhases().containsKey("config-dump") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(startupPhases.getPhases().containsKey("config-dump"));
+        Assert.assertNotNull(metrics.getGauges().get(StartupPhases.METRIC_PREFIX + "context-ms"));
+    }
+}
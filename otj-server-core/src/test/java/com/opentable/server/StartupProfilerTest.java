@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// The profiler is installed by OTApplication, and reports beans, configurations and connectors once ready
+public class StartupProfilerTest {
+    private static final String FILE = "target/startup-profile-test.json";
+
+    @After
+    public void after() {
+        System.clearProperty(StartupProfiler.ENABLED);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test() throws Exception {
+        System.setProperty(StartupProfiler.ENABLED, "true");
+        try (ConfigurableApplicationContext ctx = OTApplication.run(TestServerConfiguration.class, new String[] {},
+                ImmutableMap.of("server.port", "0", StartupProfiler.FILE, FILE, StartupProfiler.TOP, "5"))) {
+            final StartupProfiler profiler = ctx.getBean(StartupProfiler.class);
+            final Map<String, Object> report = profiler.getReportData();
+            Assert.assertNotNull(report);
+            Assert.assertEquals(5, ((List<?>) report.get("beans")).size());
+            Assert.assertFalse(((List<?>) report.get("configurations")).isEmpty());
+            Assert.assertTrue(((Map<String, Long>) report.get("connectorBindMs")).containsKey(EmbeddedJettyBase.DEFAULT_CONNECTOR_NAME));
+            Assert.assertTrue(profiler.getReport().contains("slowest beans"));
+
+            final Map<String, Object> written = new ObjectMapper().readValue(new File(FILE), Map.class);
+            Assert.assertEquals(report.keySet(), written.keySet());
+        }
+    }
+}
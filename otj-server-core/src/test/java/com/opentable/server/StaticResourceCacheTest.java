@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.static-cache.enabled=true",
+})
+// Static files come from the cache, compressed when asked for, and revalidate with their ETag
+public class StaticResourceCacheTest {
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void test() throws IOException, InterruptedException {
+        final HttpResponse<byte[]> plain = get(HttpRequest.newBuilder(request.of("/static/test.css")));
+        Assert.assertEquals(200, plain.statusCode());
+        Assert.assertFalse(plain.headers().firstValue("Content-Encoding").isPresent());
+        Assert.assertEquals("text/css", plain.headers().firstValue("Content-Type").orElse("").split(";")[0]);
+
+        final HttpResponse<byte[]> gzip = get(HttpRequest.newBuilder(request.of("/static/test.css"))
+                .header("Accept-Encoding", "gzip"));
+        Assert.assertEquals(200, gzip.statusCode());
+        Assert.assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        Assert.assertTrue(gzip.body().length < plain.body().length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            Assert.assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+
+        final String etag = gzip.headers().firstValue("ETag").orElseThrow();
+        Assert.assertNotEquals(etag, plain.headers().firstValue("ETag").orElseThrow());
+        final HttpResponse<byte[]> revalidated = get(HttpRequest.newBuilder(request.of("/static/test.css"))
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", etag));
+        Assert.assertEquals(304, revalidated.statusCode());
+
+        Assert.assertEquals(404, get(HttpRequest.newBuilder(request.of("/static/missing.css"))).statusCode());
+        Assert.assertEquals(1L, metrics.getGauges().get(StaticResourceConfiguration.METRIC_PREFIX + "entries").getValue());
+        final Meter hits = metrics.getMeters().get(StaticResourceConfiguration.METRIC_PREFIX + "hits");
+        Assert.assertEquals(3L, hits.getCount());
+    }
+
+    private HttpResponse<byte[]> get(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return client.send(builder.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -14,7 +14,12 @@
 package com.opentable.server;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -70,6 +75,59 @@ public class TestServerConfiguration {
         }
     }
 
+    @WebServlet(urlPatterns = {"/sleep/*"}, loadOnStartup = 1)
+    public static class SleepServlet extends HttpServlet
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(Long.parseLong(request.getParameter("millis")));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.getWriter().print(HELLO_WORLD);
+        }
+    }
+
+    @WebServlet(urlPatterns = {"/async-sleep/*"}, loadOnStartup = 1, asyncSupported = true)
+    public static class AsyncSleepServlet extends HttpServlet
+    {
+
+        private static final long serialVersionUID = 1L;
+        static final AtomicInteger SUSPENDED = new AtomicInteger();
+
+        @Override
+        public void doGet(HttpServletRequest request, HttpServletResponse response) {
+            final AsyncContext async = request.startAsync();
+            SUSPENDED.incrementAndGet();
+            CompletableFuture.delayedExecutor(Long.parseLong(request.getParameter("millis")), TimeUnit.MILLISECONDS).execute(() -> {
+                try {
+                    async.getResponse().getWriter().print(HELLO_WORLD);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    SUSPENDED.decrementAndGet();
+                    async.complete();
+                }
+            });
+        }
+    }
+
+    @WebServlet(urlPatterns = {"/deadline/*"}, loadOnStartup = 1)
+    public static class DeadlineServlet extends HttpServlet
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            final RequestDeadline deadline = RequestDeadline.of(request);
+            response.getWriter().print(deadline == null ? "none" : Long.toString(deadline.remaining().toMillis()));
+        }
+    }
 
     public static void main(String[] args) {
         SpringApplication.run(TestServerConfiguration.class, args);
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import javax.inject.Inject;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.opentable.server.HttpServerInfo.ThreadMode;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.thread-mode=virtual",
+})
+// Virtual threads are used when the JVM has them, otherwise we fall back to the platform pool
+public class ThreadModeTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private HttpServerInfo info;
+
+    @Inject
+    private LoopbackRequest request;
+
+    private final TestRestTemplate client = new TestRestTemplate();
+
+    @Test
+    public void test() {
+        final boolean supported = VirtualThreads.areSupported();
+        Assert.assertEquals(supported ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM, info.getThreadMode());
+        Assert.assertEquals(supported, ((QueuedThreadPool) server.getThreadPool()).isUseVirtualThreads());
+        Assert.assertEquals(TestServerConfiguration.HELLO_WORLD, client.getForObject(request.of("/hello"), String.class));
+    }
+
+    // A typo names the property and the accepted values instead of a bare enum constant error
+    @Test
+    public void testInvalid() {
+        Assert.assertEquals(ThreadMode.PLATFORM, EmbeddedJettyBase.parseThreadMode(" Platform "));
+        try {
+            EmbeddedJettyBase.parseThreadMode("virtaul");
+            Assert.fail("expected an invalid thread mode to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Invalid 'ot.httpserver.thread-mode' value 'virtaul', expected one of [platform, virtual]", e.getMessage());
+        }
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.opentable.server;
 
+import java.time.Instant;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
@@ -54,4 +55,29 @@ public class ThreadNameFilterTest {
 
     }
 
+    // The cached builder produces the same ISO-8601 prefix Instant does, and bounds the URI
+    @Test
+    public void testBuilder() {
+        final ThreadNameFilterConfiguration.ThreadNameBuilder builder = new ThreadNameFilterConfiguration.ThreadNameBuilder();
+        Assert.assertEquals("2023-10-11T12:34:56.007Z:/abc", builder.build(Instant.parse("2023-10-11T12:34:56.007Z").toEpochMilli(), "/abc", 10));
+        Assert.assertEquals("2023-10-11T12:34:57.123Z:/abcd", builder.build(Instant.parse("2023-10-11T12:34:57.123Z").toEpochMilli(), "/abcdefgh", 5));
+    }
+
+    // Sampling counts requests across threads, so it also works when every request gets a new virtual thread
+    @Test
+    public void testSample() throws InterruptedException {
+        final ThreadNameFilterConfiguration.ThreadNameFilter filter = new ThreadNameFilterConfiguration.ThreadNameFilter(10, 3);
+        Assert.assertTrue(filter.sample());
+        final boolean[] sampled = new boolean[2];
+        for (int i = 0; i < sampled.length; i++) {
+            final int index = i;
+            final Thread thread = new Thread(() -> sampled[index] = filter.sample());
+            thread.start();
+            thread.join();
+        }
+        Assert.assertFalse(sampled[0]);
+        Assert.assertFalse(sampled[1]);
+        Assert.assertTrue(filter.sample());
+    }
+
 }
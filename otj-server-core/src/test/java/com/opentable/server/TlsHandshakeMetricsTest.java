@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import javax.inject.Inject;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.httpserver.connector.default-http.protocol=https",
+        "ot.httpserver.connector.default-http.keystore=src/test/resources/tls/keystore.p12",
+        "ot.httpserver.connector.default-http.sslSessionCacheSize=100",
+        "ot.httpserver.connector.default-http.sslSessionTimeout=300",
+})
+// The https connector applies the session settings, and tells full handshakes from resumed ones
+public class TlsHandshakeMetricsTest {
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private HttpServerInfo info;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Test
+    public void test() throws IOException, GeneralSecurityException {
+        final InstrumentedSslConnectionFactory ssl = server.getConnectors()[0].getConnectionFactory(InstrumentedSslConnectionFactory.class);
+        Assert.assertNotNull(ssl);
+        Assert.assertEquals(100, ssl.getSslContextFactory().getSslSessionCacheSize());
+        Assert.assertEquals(300, ssl.getSslContextFactory().getSslSessionTimeout());
+
+        // One client context, so the second connection can resume the first one's session
+        final SSLContext client = SSLContext.getInstance("TLS");
+        client.init(null, new TrustManager[] {new TrustAllManager()}, null);
+        handshake(client);
+        handshake(client);
+
+        Assert.assertEquals(1, ssl.getFullHandshakes());
+        Assert.assertEquals(1, ssl.getResumedHandshakes());
+        Assert.assertEquals(0, ssl.getFailedHandshakes());
+        final String prefix = EmbeddedJettyTlsMetrics.METRIC_PREFIX + EmbeddedJettyBase.DEFAULT_CONNECTOR_NAME + '.';
+        Assert.assertEquals(2, metrics.getTimers().get(prefix + "handshake").getCount());
+        Assert.assertEquals(1, metrics.getMeters().get(prefix + "resumed").getCount());
+    }
+
+    private void handshake(SSLContext context) throws IOException {
+        try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", info.getPort())) {
+            socket.startHandshake();
+            // TLS 1.3 tickets arrive after the handshake; a request / response lets the client read them
+            socket.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            socket.getInputStream().readAllBytes();
+        }
+    }
+}
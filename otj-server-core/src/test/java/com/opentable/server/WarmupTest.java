@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.warmup.enabled=true",
+        "ot.server.warmup.requests=hello,missing",
+        "ot.server.warmup.request.hello.path=/hello",
+        "ot.server.warmup.request.missing.path=/missing",
+        "ot.server.warmup.window=5",
+        "ot.server.warmup.max-iterations=50",
+})
+// Warm-up replays the configured requests through the handler chain before the test context is ready, then lets traffic in
+public class WarmupTest {
+
+    @Inject
+    private WarmupHandler warmup;
+
+    @Inject
+    private Server server;
+
+    @Inject
+    private MetricRegistry metrics;
+
+    @Inject
+    private LoopbackRequest request;
+
+    @Test
+    public void test() {
+        Assert.assertFalse(warmup.isWarming());
+        Assert.assertTrue(warmup.getDurationMillis() >= 0);
+
+        Assert.assertEquals(200, warmup.getResult("hello").getStatus());
+        Assert.assertEquals(404, warmup.getResult("missing").getStatus());
+        Assert.assertTrue(warmup.getResult("hello").getIterations() >= 10);
+        Assert.assertTrue(warmup.getResult("hello").getIterations() <= 50);
+        Assert.assertTrue((Long) metrics.getGauges().get(EmbeddedJettyWarmup.METRIC_PREFIX + "hello.converged-us").getValue() > 0);
+
+        Assert.assertTrue(Arrays.stream(server.getConnectors()).noneMatch(c -> WarmupHandler.CONNECTOR_NAME.equals(c.getName())));
+        Assert.assertEquals(HttpStatus.OK, new TestRestTemplate().getForEntity(request.of("/hello"), String.class).getStatusCode());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = {
+        TestJaxRsServerConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ot.server.backend.info.enabled=true",
+        "ot.server.bulkhead.enabled=true",
+        "ot.server.bulkhead.partitions=slow",
+        "ot.server.bulkhead.partition.slow.paths=/sleep",
+        "ot.server.bulkhead.partition.slow.max-concurrent=1",
+        "ot.server.bulkhead.partition.slow.max-queued=1",
+})
+// A request parked by the bulkhead still goes through the RESTEasy dispatcher filter and the OT filters once it runs
+public class JAXRSBulkheadTest {
+
+    @Inject
+    private BulkheadHandler bulkhead;
+
+    @Inject
+    private JAXRSLoopbackRequest request;
+
+    // The common pool may have a single thread
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10_000)
+    public void testParked() throws InterruptedException {
+        final BulkheadHandler.Partition slow = bulkhead.getPartitions().get("slow");
+
+        final CompletableFuture<Response> running = CompletableFuture.supplyAsync(() -> sleep(1000), executor);
+        while (slow.getActive() == 0) {
+            Thread.sleep(10);
+        }
+        final CompletableFuture<Response> parked = CompletableFuture.supplyAsync(() -> sleep(10), executor);
+        while (slow.getQueued() == 0) {
+            Thread.sleep(10);
+        }
+
+        try (Response first = running.join(); Response second = parked.join()) {
+            Assert.assertEquals(200, first.getStatus());
+            Assert.assertEquals(200, second.getStatus());
+            Assert.assertEquals("slept", second.readEntity(String.class));
+            Assert.assertEquals("test", second.getHeaderString(BackendInfoFilterConfiguration.HEADER_PREFIX + "Service-Name"));
+        }
+    }
+
+    private Response sleep(long millis) {
+        final Response response = request.of("/sleep").queryParam("millis", millis).request().get();
+        response.bufferEntity();
+        return response;
+    }
+}
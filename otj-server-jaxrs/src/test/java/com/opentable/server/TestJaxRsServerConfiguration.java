@@ -119,6 +119,13 @@ public class TestJaxRsServerConfiguration {
             return TestJaxRsServerConfiguration.HELLO_WORLD;
         }
 
+        @GET
+        @Path("sleep")
+        public String sleep(@QueryParam("millis") long millis) throws InterruptedException {
+            Thread.sleep(millis);
+            return "slept";
+        }
+
         @GET
         @Path("/nuclear-launch-codes")
         @RolesAllowed("POTUS")
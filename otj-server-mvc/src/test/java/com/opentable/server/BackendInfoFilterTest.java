@@ -15,14 +15,21 @@ package com.opentable.server;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.TestPropertySource;
 
 @TestPropertySource(properties = {
@@ -38,6 +45,9 @@ public class BackendInfoFilterTest extends AbstractTest {
     @Autowired
     private TestRestTemplate testRestTemplate;
 
+    @Autowired
+    private BackendInfoFilterConfiguration.BackendInfoFilter filter;
+
     @Test
     public void test() {
         ResponseEntity<String> response = testRestTemplate.exchange("/api/test", HttpMethod.GET, null, String.class);
@@ -59,4 +69,24 @@ public class BackendInfoFilterTest extends AbstractTest {
         assertEquals("mesos-slave9001-dev-sf.qasql.opentable.com", response.getHeaders().get(BackendInfoFilterConfiguration.HEADER_PREFIX + "Task-Host").get(0));
     }
 
+    // Wrapped and non-Jetty responses get the headers through addHeader, before the chain runs
+    @Test
+    public void testWrappedResponse() throws IOException, ServletException {
+        final MockHttpServletResponse plain = new MockHttpServletResponse();
+        final MockHttpServletResponse wrapped = new MockHttpServletResponse();
+        for (HttpServletResponse response : new HttpServletResponse[] { plain, new HttpServletResponseWrapper(wrapped) }) {
+            final AtomicBoolean chained = new AtomicBoolean();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/test"), response, (req, res) -> {
+                Assert.assertEquals("test", ((HttpServletResponse) res).getHeader(BackendInfoFilterConfiguration.HEADER_PREFIX + "Service-Name"));
+                chained.set(true);
+            });
+            Assert.assertTrue(chained.get());
+        }
+        for (MockHttpServletResponse response : new MockHttpServletResponse[] { plain, wrapped }) {
+            assertEquals("some-service-3.14", response.getHeader(BackendInfoFilterConfiguration.HEADER_PREFIX + "Build-Tag"));
+            assertEquals("test", response.getHeader(BackendInfoFilterConfiguration.HEADER_PREFIX + "Service-Name"));
+            assertEquals("3", response.getHeader(BackendInfoFilterConfiguration.HEADER_PREFIX + "Instance-No"));
+            assertEquals("mesos-slave9001-dev-sf.qasql.opentable.com", response.getHeader(BackendInfoFilterConfiguration.HEADER_PREFIX + "Task-Host"));
+        }
+    }
 }
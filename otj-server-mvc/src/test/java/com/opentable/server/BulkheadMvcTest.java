@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opentable.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "ot.server.backend.info.enabled=true",
+        "ot.server.bulkhead.enabled=true",
+        "ot.server.bulkhead.partitions=slow",
+        "ot.server.bulkhead.partition.slow.paths=/api/sleep",
+        "ot.server.bulkhead.partition.slow.max-concurrent=1",
+        "ot.server.bulkhead.partition.slow.max-queued=1",
+})
+// A request parked by the bulkhead still goes through the OT filters and Spring MVC once it runs
+public class BulkheadMvcTest extends AbstractTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private BulkheadHandler bulkhead;
+
+    // The common pool may have a single thread
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10_000)
+    public void testParked() throws InterruptedException {
+        final BulkheadHandler.Partition slow = bulkhead.getPartitions().get("slow");
+
+        final CompletableFuture<ResponseEntity<String>> running = CompletableFuture.supplyAsync(() -> sleep(1000), executor);
+        while (slow.getActive() == 0) {
+            Thread.sleep(10);
+        }
+        final CompletableFuture<ResponseEntity<String>> parked = CompletableFuture.supplyAsync(() -> sleep(10), executor);
+        while (slow.getQueued() == 0) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(HttpStatus.OK, running.join().getStatusCode());
+        final ResponseEntity<String> response = parked.join();
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals("slept", response.getBody());
+        Assert.assertEquals("test", response.getHeaders().getFirst(BackendInfoFilterConfiguration.HEADER_PREFIX + "Service-Name"));
+    }
+
+    private ResponseEntity<String> sleep(long millis) {
+        return testRestTemplate.getForEntity("/api/sleep?millis=" + millis, String.class);
+    }
+}
@@ -87,6 +87,12 @@ public class TestMvcServerConfiguration {
             return "test";
         }
 
+        @GetMapping("sleep")
+        public String sleep(@RequestParam("millis") long millis) throws InterruptedException {
+            Thread.sleep(millis);
+            return "slept";
+        }
+
         @GetMapping("echo")
         public EchoResponse echo(@RequestHeader HttpHeaders headers) {
             return restTemplate.exchange("https://postman-echo.com/get",
@@ -28,8 +28,17 @@ import com.opentable.metrics.reactive.MetricsHttpReactiveConfiguration;
 import com.opentable.metrics.reactive.ReadyHttpReactiveConfiguration;
 import com.opentable.security.mitigation.ApplySecurityMitigations;
 import com.opentable.server.EmbeddedJettyConfiguration;
+import com.opentable.server.EmbeddedJettyBufferPoolMetrics;
+import com.opentable.server.EmbeddedJettyCoDel;
+import com.opentable.server.EmbeddedJettyCompression;
 import com.opentable.server.EmbeddedJettyConnectionLimit;
+import com.opentable.server.EmbeddedJettyDeadline;
+import com.opentable.server.EmbeddedJettyDrain;
+import com.opentable.server.EmbeddedJettyKeyStoreReload;
+import com.opentable.server.EmbeddedJettyLatencyMetrics;
 import com.opentable.server.EmbeddedJettyLowResourceMonitor;
+import com.opentable.server.EmbeddedJettyTlsMetrics;
+import com.opentable.server.EmbeddedJettyWarmup;
 import com.opentable.server.EmbeddedReactiveJetty;
 import com.opentable.server.NonWebSetup;
 import com.opentable.server.reactive.webfilter.BackendInfoWebFilterConfiguration;
@@ -59,6 +68,24 @@ import com.opentable.server.reactive.webfilter.BackendInfoWebFilterConfiguration
         EmbeddedJettyLowResourceMonitor.class,
         // Connection Limiter
         EmbeddedJettyConnectionLimit.class,
+        // Latency histograms per connector
+        EmbeddedJettyLatencyMetrics.class,
+        // Per connector buffer pool metrics
+        EmbeddedJettyBufferPoolMetrics.class,
+        // TLS handshake metrics
+        EmbeddedJettyTlsMetrics.class,
+        // Keystore hot reload
+        EmbeddedJettyKeyStoreReload.class,
+        // Drain in-flight requests on shutdown
+        EmbeddedJettyDrain.class,
+        // Response compression
+        EmbeddedJettyCompression.class,
+        // Warm-up before ready
+        EmbeddedJettyWarmup.class,
+        // Drop requests past their deadline
+        EmbeddedJettyDeadline.class,
+        // CoDel load shedding on queue delay
+        EmbeddedJettyCoDel.class,
         // Support static resources
         // TODO: Need to test serving static resources the WebFlux way. See OTPL-3648.
 })
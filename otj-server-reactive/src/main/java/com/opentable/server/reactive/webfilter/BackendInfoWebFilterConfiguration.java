@@ -15,9 +15,14 @@ package com.opentable.server.reactive.webfilter;
 
 import java.util.Map;
 
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.server.Response;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
@@ -40,15 +45,36 @@ public class BackendInfoWebFilterConfiguration extends BackendInfoFilterBaseConf
 
     public static class BackendInfoWebFilter implements WebFilter {
         private final Map<String, String> headers;
+        private final HttpField[] encodedHeaders;
 
         BackendInfoWebFilter(final AppInfo appInfo, final ServiceInfo serviceInfo) {
             headers = assembleInfo(appInfo, serviceInfo);
+            encodedHeaders = preEncode(headers);
         }
 
         @Override
         public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-            headers.forEach((h,v) -> exchange.getResponse().getHeaders().add(h, v));
+            final ServerHttpResponse response = exchange.getResponse();
+            final Object nativeResponse = nativeResponse(response);
+            if (nativeResponse instanceof Response) {
+                // Running on Jetty: the fields are static, add them pre-encoded
+                final HttpFields.Mutable fields = ((Response) nativeResponse).getHttpFields();
+                for (HttpField field : encodedHeaders) {
+                    fields.add(field);
+                }
+            } else {
+                headers.forEach((h,v) -> response.getHeaders().add(h, v));
+            }
             return chain.filter(exchange);
         }
+
+        private static Object nativeResponse(ServerHttpResponse response) {
+            try {
+                return ServerHttpResponseDecorator.getNativeResponse(response);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Not a server response (e.g. a mock), or one without a native response
+                return null;
+            }
+        }
     }
 }
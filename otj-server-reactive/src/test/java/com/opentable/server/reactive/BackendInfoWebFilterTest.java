@@ -20,10 +20,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import reactor.core.publisher.Mono;
+
 import com.opentable.server.reactive.webfilter.BackendInfoWebFilterConfiguration;
 
 @TestPropertySource(properties = {
@@ -39,6 +44,9 @@ public class BackendInfoWebFilterTest extends AbstractTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private BackendInfoWebFilterConfiguration.BackendInfoWebFilter filter;
+
     @Test
     public void test() {
 
@@ -65,4 +73,16 @@ public class BackendInfoWebFilterTest extends AbstractTest {
         assertEquals("mesos-slave9001-dev-sf.qasql.opentable.com", result.getResponseHeaders().get(BackendInfoWebFilterConfiguration.HEADER_PREFIX + "Task-Host").get(0));
     }
 
+    // Responses without a Jetty response underneath get the headers through the Spring headers instead
+    @Test
+    public void testNonJettyResponse() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/test"));
+        filter.filter(exchange, e -> Mono.empty()).block();
+
+        final HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertEquals("some-service-3.14", headers.getFirst(BackendInfoWebFilterConfiguration.HEADER_PREFIX + "Build-Tag"));
+        assertEquals("test", headers.getFirst(BackendInfoWebFilterConfiguration.HEADER_PREFIX + "Service-Name"));
+        assertEquals("3", headers.getFirst(BackendInfoWebFilterConfiguration.HEADER_PREFIX + "Instance-No"));
+        assertEquals("mesos-slave9001-dev-sf.qasql.opentable.com", headers.getFirst(BackendInfoWebFilterConfiguration.HEADER_PREFIX + "Task-Host"));
+    }
 }